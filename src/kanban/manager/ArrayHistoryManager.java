@@ -0,0 +1,200 @@
+package kanban.manager;
+
+import kanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// история просмотров на массивах: двусвязный список по индексам ячеек (int prev/next)
+// и индекс id -> ячейка в LongIntHashMap. Узлы не создаются: освобожденные ячейки
+// переиспользуются через список свободных, поэтому повторный просмотр, вытеснение
+// и удаление не выделяют память. Массивы растут только до capacity
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NIL = -1;
+    private static final int MIN_SLOTS = 16;
+
+    private final int capacity;
+    private Task[] values;
+    private int[] prev;
+    private int[] next;
+    private final LongIntHashMap index;
+    private int head = NIL;
+    private int tail = NIL;
+    // список свободных ячеек связан через next
+    private int free = NIL;
+    // ячейки с номером >= used еще не выдавались
+    private int used;
+    private int size;
+
+    public ArrayHistoryManager() {
+        this(InMemoryHistoryManager.UNBOUNDED);
+    }
+
+    public ArrayHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        int slots = Math.min(capacity, MIN_SLOTS);
+        values = new Task[slots];
+        prev = new int[slots];
+        next = new int[slots];
+        index = new LongIntHashMap(slots);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        int slot = index.get(task.getId());
+        if (slot != NIL) {
+            // повторный просмотр: переносим ячейку в конец
+            values[slot] = task;
+            if (slot != tail) {
+                unlink(slot);
+                linkLast(slot);
+            }
+            return;
+        }
+        if (size == capacity) {
+            // вытесняем самый давний просмотр, его ячейка достается новой задаче
+            slot = head;
+            index.remove(values[slot].getId());
+            unlink(slot);
+            size--;
+        } else {
+            slot = allocate();
+        }
+        values[slot] = task;
+        linkLast(slot);
+        index.put(task.getId(), slot);
+        size++;
+    }
+
+    @Override
+    public void remove(long id) {
+        int slot = index.remove(id);
+        if (slot == NIL) {
+            return;
+        }
+        unlink(slot);
+        values[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> result = new ArrayList<>(size);
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            result.add(values[slot]);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+        List<Task> result = new ArrayList<>(Math.min(limit, size));
+        int slot = head;
+        for (int i = 0; i < offset && slot != NIL; i++) {
+            slot = next[slot];
+        }
+        for (; slot != NIL && result.size() < limit; slot = next[slot]) {
+            result.add(values[slot]);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterable<Task> history() {
+        return () -> new Iterator<>() {
+            private int slot = head;
+
+            @Override
+            public boolean hasNext() {
+                return slot != NIL;
+            }
+
+            @Override
+            public Task next() {
+                if (slot == NIL) {
+                    throw new NoSuchElementException();
+                }
+                Task task = values[slot];
+                slot = next[slot];
+                return task;
+            }
+        };
+    }
+
+    @Override
+    public void forEachRecent(int limit, Consumer<? super Task> action) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        int slot = tail;
+        for (int i = 0; i < limit && slot != NIL; i++) {
+            action.accept(values[slot]);
+            slot = prev[slot];
+        }
+    }
+
+    // свободная ячейка: из списка свободных или новая, при нехватке массивы удваиваются
+    private int allocate() {
+        if (free != NIL) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (used == values.length) {
+            int slots = (int) Math.min((long) values.length * 2, capacity);
+            values = Arrays.copyOf(values, slots);
+            prev = Arrays.copyOf(prev, slots);
+            next = Arrays.copyOf(next, slots);
+        }
+        return used++;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NIL) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (n == NIL) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package kanban.manager;
+
+import kanban.exception.ManagerLoadException;
+import kanban.exception.ManagerSaveException;
+import kanban.model.Epic;
+import kanban.model.Subtask;
+import kanban.model.Task;
+import kanban.model.TaskState;
+import kanban.model.TaskType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// бинарный формат хранения задач, читается через MappedByteBuffer.
+//
+// header:  int magic, short version, short reserved, int taskCount, int historyCount
+// record:  long id, byte type, byte state, long epicId, long startSecond, int startNano,
+//          int duration, int nameLength, int descriptionLength, name (UTF-8), description (UTF-8)
+// history: long id * historyCount
+//
+// startSecond = Long.MIN_VALUE - startTime не задан, длина строки -1 - значение null
+public class BinaryTaskStore {
+    public static final int MAGIC = 0x4B4E424E; // "KNBN"
+    public static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 42;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskState[] STATES = TaskState.values();
+
+    private final MappedByteBuffer buffer;
+    private final int taskCount;
+    private final int historyCount;
+
+    // открыть файл в бинарном формате
+    public BinaryTaskStore(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // MappedByteBuffer адресуется int, файл больше 2 ГБ одним буфером не отобразить
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ManagerLoadException("Binary task file is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ManagerLoadException("Error on load data", e);
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new ManagerLoadException("Not a binary task file: " + file);
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new ManagerLoadException("Unsupported binary format version " + buffer.getShort(4));
+        }
+        taskCount = buffer.getInt(8);
+        historyCount = buffer.getInt(12);
+        if (taskCount < 0 || historyCount < 0) {
+            throw new ManagerLoadException("Damaged binary task file: " + file);
+        }
+    }
+
+    public int size() {
+        return taskCount;
+    }
+
+    // курсор по записям: поля читаются прямо из файла, Task создается только по запросу
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // все задачи в порядке записи
+    public List<Task> getTasks() {
+        List<Task> result = new ArrayList<>(taskCount);
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            result.add(cursor.toTask());
+        }
+        return result;
+    }
+
+    // идентификаторы истории просмотров
+    public List<Long> getHistory() {
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            // пропускаем записи задач
+        }
+        int pos = cursor.next;
+        checkBounds(pos, (long) historyCount * Long.BYTES);
+        List<Long> result = new ArrayList<>(historyCount);
+        for (int i = 0; i < historyCount; i++) {
+            result.add(buffer.getLong(pos + i * Long.BYTES));
+        }
+        return result;
+    }
+
+    // записать задачи и историю в файл через временный файл, как снимок FileBackedTasksManager.
+    // Число задач считается при записи и вписывается в заголовок в конце
+    public static void write(File file, Iterable<? extends Task> tasks, List<Long> history) {
+        try {
+            FileBackedTasksManager.writeAtomically(file, stream -> {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                int taskCount = 0;
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeShort(0);
+                out.writeInt(0);
+                out.writeInt(history.size());
+                for (Task task : tasks) {
+                    writeTask(out, task);
+                    taskCount++;
+                }
+                for (Long id : history) {
+                    out.writeLong(id);
+                }
+                out.flush();
+                stream.getChannel().write(ByteBuffer.allocate(Integer.BYTES).putInt(0, taskCount), 8);
+            });
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error on save data", e);
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        TaskType type = TaskType.of(task);
+        long epicId = (type == TaskType.SUBTASK) ? ((Subtask) task).getEpic() : -1;
+        byte[] name = (task.getName() != null) ? task.getName().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] description = (task.getDescription() != null)
+                ? task.getDescription().getBytes(StandardCharsets.UTF_8) : null;
+        LocalDateTime startTime = task.getStartTime();
+
+        out.writeLong(task.getId());
+        out.writeByte(type.ordinal());
+        out.writeByte(task.getState().ordinal());
+        out.writeLong(epicId);
+        out.writeLong((startTime != null) ? startTime.toEpochSecond(ZoneOffset.UTC) : NO_TIME);
+        out.writeInt((startTime != null) ? startTime.getNano() : 0);
+        out.writeInt(task.getDuration());
+        out.writeInt((name != null) ? name.length : -1);
+        out.writeInt((description != null) ? description.length : -1);
+        if (name != null) {
+            out.write(name);
+        }
+        if (description != null) {
+            out.write(description);
+        }
+    }
+
+    // converter: CSV -> binary, the CSV store is only read
+    public static void csvToBinary(File csv, File binary) {
+        FileBackedTasksManager manager = FileBackedTasksManager.readOnly(csv);
+        List<Task> tasks = new ArrayList<>(manager.getAllTasks());
+        tasks.addAll(manager.getAllEpics());
+        tasks.addAll(manager.getAllSubtasks());
+        List<Long> history = new ArrayList<>();
+        manager.getHistory().forEach(t -> history.add(t.getId()));
+        write(binary, tasks, history);
+    }
+
+    // converter: binary -> CSV.
+    // Старое хранилище удаляется вместе с сегментами журналов, иначе они применятся к новому
+    public static void binaryToCsv(File binary, File csv) {
+        BinaryTaskStore store = new BinaryTaskStore(binary);
+        try {
+            Files.deleteIfExists(csv.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error on save data", e);
+        }
+        new Journal(new File(csv.getPath() + ".log")).deleteUpTo(Long.MAX_VALUE);
+        new Journal(new File(csv.getPath() + ".history")).deleteUpTo(Long.MAX_VALUE);
+        FileBackedTasksManager manager = new FileBackedTasksManager(csv);
+        manager.restore(store);
+        manager.save();
+    }
+
+    // данные [offset, offset + length) должны лежать внутри файла
+    private void checkBounds(int offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new ManagerLoadException("Damaged binary task file: data at " + offset + " is out of bounds");
+        }
+    }
+
+    // позиция в файле, поля текущей записи читаются по смещениям
+    public class Cursor {
+        private int position = -1;
+        private int next = HEADER_SIZE;
+        private int index;
+
+        // перейти к следующей записи, границы записи проверяются до чтения ее полей
+        public boolean next() {
+            if (index >= taskCount) {
+                return false;
+            }
+            checkBounds(next, RECORD_HEADER_SIZE);
+            position = next;
+            int nameLength = buffer.getInt(position + 34);
+            int descriptionLength = buffer.getInt(position + 38);
+            if (nameLength < -1 || descriptionLength < -1) {
+                throw new ManagerLoadException("Damaged binary task record at " + position);
+            }
+            long size = RECORD_HEADER_SIZE + (long) Math.max(0, nameLength) + Math.max(0, descriptionLength);
+            checkBounds(position, size);
+            next = (int) (position + size);
+            index++;
+            return true;
+        }
+
+        public long getId() {
+            return buffer.getLong(position);
+        }
+
+        public TaskType getType() {
+            return TYPES[ordinal(position + 8, TYPES.length)];
+        }
+
+        public TaskState getState() {
+            return STATES[ordinal(position + 9, STATES.length)];
+        }
+
+        public long getEpicId() {
+            return buffer.getLong(position + 10);
+        }
+
+        public LocalDateTime getStartTime() {
+            long second = buffer.getLong(position + 18);
+            if (second == NO_TIME) {
+                return null;
+            }
+            try {
+                return LocalDateTime.ofEpochSecond(second, buffer.getInt(position + 26), ZoneOffset.UTC);
+            } catch (DateTimeException e) {
+                throw new ManagerLoadException("Damaged binary task record at " + position, e);
+            }
+        }
+
+        public int getDuration() {
+            return buffer.getInt(position + 30);
+        }
+
+        public String getName() {
+            return string(position + RECORD_HEADER_SIZE, buffer.getInt(position + 34));
+        }
+
+        public String getDescription() {
+            return string(position + RECORD_HEADER_SIZE + length(position + 34), buffer.getInt(position + 38));
+        }
+
+        // создать Task из текущей записи
+        public Task toTask() {
+            Task result;
+            switch (getType()) {
+                case SUBTASK:
+                    Subtask subtask = new Subtask();
+                    subtask.setEpic(getEpicId());
+                    result = subtask;
+                    break;
+                case EPIC:
+                    result = new Epic();
+                    break;
+                default:
+                    result = new Task();
+            }
+            result.setId(getId());
+            result.setName(getName());
+            result.setDescription(getDescription());
+            result.setState(getState());
+            result.setStartTime(getStartTime());
+            result.setDuration(getDuration());
+            return result;
+        }
+
+        private int length(int offset) {
+            return Math.max(0, buffer.getInt(offset));
+        }
+
+        private int ordinal(int offset, int count) {
+            int value = buffer.get(offset);
+            if (value < 0 || value >= count) {
+                throw new ManagerLoadException("Damaged binary task record at " + position);
+            }
+            return value;
+        }
+
+        private String string(int offset, int length) {
+            if (length < 0) {
+                return null;
+            }
+            checkBounds(offset, length);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package kanban.manager;
+
+import kanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// потокобезопасная история просмотров.
+// add и remove не меняют список сразу, а кладут операцию в буфер своего потока (буферы
+// разбиты на полосы по id потока, так что потоки почти не конкурируют). Буферы сливаются
+// в InMemoryHistoryManager под drainLock тем потоком, который первым получит блокировку
+// через tryLock: писателем, когда буфер полосы заполнен, или читателем. Никто не ждет
+// блокировку - если она занята, операции сольет поток, который ее держит.
+// После слива публикуется неизменяемая копия истории, getHistory возвращает ее без блокировок
+public class ConcurrentHistoryManager implements HistoryManager {
+    // после стольких операций в полосе писатель сливает буферы
+    static final int DRAIN_THRESHOLD = 32;
+    private static final int STRIPES = stripes();
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // порядок операций между полосами
+    private final AtomicLong sequence = new AtomicLong();
+    // история, доступ только под drainLock
+    private final InMemoryHistoryManager history;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // последняя опубликованная история
+    private volatile List<Task> snapshot = List.of();
+
+    public ConcurrentHistoryManager() {
+        this(Manager.DEFAULT_HISTORY_CAPACITY);
+    }
+
+    public ConcurrentHistoryManager(int capacity) {
+        this.history = new InMemoryHistoryManager(capacity);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        record(new Op(sequence.getAndIncrement(), task.getId(), task));
+    }
+
+    @Override
+    public void remove(long id) {
+        record(new Op(sequence.getAndIncrement(), id, null));
+    }
+
+    // история с учетом операций, записанных до вызова. Если буферы в этот момент сливает
+    // другой поток, возвращается последняя опубликованная история: сливающий поток
+    // опубликует остальное, читатель его не ждет
+    @Override
+    public List<Task> getHistory() {
+        tryDrain();
+        return snapshot;
+    }
+
+    // операций, еще не слитых в историю
+    int pending() {
+        int result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.size.get();
+        }
+        return result;
+    }
+
+    private void record(Op op) {
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+        stripe.ops.add(op);
+        if (stripe.size.incrementAndGet() >= DRAIN_THRESHOLD) {
+            tryDrain();
+        }
+    }
+
+    // слить буферы, если их не сливает другой поток; не блокируется.
+    // Поток со сливом после него проверяет буферы снова: операции, записанные, пока
+    // блокировка была занята, не остаются в буферах
+    private void tryDrain() {
+        while (pending() > 0 && drainLock.tryLock()) {
+            try {
+                drainLocked();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // применить накопленные операции в порядке их номеров и опубликовать историю
+    private void drainLocked() {
+        List<Op> ops = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            Op op;
+            while ((op = stripe.ops.poll()) != null) {
+                stripe.size.decrementAndGet();
+                ops.add(op);
+            }
+        }
+        if (ops.isEmpty()) {
+            return;
+        }
+        ops.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        for (Op op : ops) {
+            if (op.task != null) {
+                history.add(op.task);
+            } else {
+                history.remove(op.id);
+            }
+        }
+        snapshot = List.copyOf(history.getHistory());
+    }
+
+    // число полос - степень двойки не меньше числа процессоров
+    private static int stripes() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int result = 1;
+        while (result < cpus) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    private static class Stripe {
+        private final ConcurrentLinkedQueue<Op> ops = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    private static class Op {
+        private final long sequence;
+        private final long id;
+        // null - удаление
+        private final Task task;
+
+        Op(long sequence, long id, Task task) {
+            this.sequence = sequence;
+            this.id = id;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,662 @@
+package kanban.manager;
+
+import kanban.exception.ManagerTimeException;
+import kanban.model.Epic;
+import kanban.model.Subtask;
+import kanban.model.Task;
+import kanban.model.TaskView;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Потокобезопасный менеджер задач, хранит данные в памяти.
+// Чтения не блокируются, изменения подзадач блокируют только свой эпик,
+// проверка пересечений и вставка в расписание выполняются под общей блокировкой расписания.
+// Подзадачи эпика (Epic.getSubtasks) изменяются только под монитором эпика,
+// getEpic и getAllEpics возвращают копии эпиков.
+// Изменения берут transactionLock на чтение, inTransaction - на запись
+public class ConcurrentTaskManager implements TaskManager {
+
+    // история просмотров, запись и чтение без общей блокировки
+    private final HistoryManager historyManager = new ConcurrentHistoryManager();
+
+    // генератор уникальных идентификаторов
+    private final IdGenerator ids = new IdGenerator();
+
+    private final ConcurrentHashMap<Long, Task> hmTasks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Epic> hmEpics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Subtask> hmSubtasks = new ConcurrentHashMap<>();
+    // общий индекс задач всех типов по id
+    private final ConcurrentHashMap<Long, Task> entities = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Task> prioritizedTasks = new ConcurrentSkipListSet<>();
+    // блокировка расписания для задач со временем начала
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    // интервалы задач со временем, доступ под scheduleLock
+    private final IntervalIndex intervals = new IntervalIndex();
+    // последний опубликованный снимок доски
+    private final AtomicReference<TaskSnapshot> snapshot = new AtomicReference<>(TaskSnapshot.EMPTY);
+    // изменения берут блокировку на чтение и идут параллельно, транзакция - на запись
+    private final ReentrantReadWriteLock transactionLock = new ReentrantReadWriteLock();
+    // журнал отката текущей транзакции, null - вне транзакции; меняется под блокировкой на запись
+    private UndoLog undo;
+
+    // методы Task
+
+    // список всех задачь
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(hmTasks.values());
+    }
+
+    // удалить все задачи
+    @Override
+    public void removeAllTasks() {
+        for (Long id : hmTasks.keySet()) {
+            removeTask(id);
+        }
+    }
+
+    // получить задачу по идентификатору
+    @Override
+    public Task getTask(long id) {
+        Task task = hmTasks.get(id);
+        addHistory(task);
+        return task;
+    }
+
+    // добавить новую задачу
+    @Override
+    public long createTask(Task newTask) {
+        beginWrite();
+        try {
+            if (newTask == null) {
+                return -1;
+            }
+            long id = getNextId();
+            remember(id);
+            newTask.setId(id);
+            schedule(newTask, null);
+            hmTasks.put(id, newTask);
+            entities.put(id, newTask);
+            publish(id);
+            return id;
+        } finally {
+            endWrite();
+        }
+    }
+
+    // обновить задачу
+    @Override
+    public long updateTask(Task task) {
+        beginWrite();
+        try {
+            if (task == null) {
+                return -1;
+            }
+            remember(task.getId());
+            schedule(task, hmTasks.get(task.getId()));
+            hmTasks.put(task.getId(), task);
+            entities.put(task.getId(), task);
+            publish(task.getId());
+            return task.getId();
+        } finally {
+            endWrite();
+        }
+    }
+
+    // удалить задачу
+    @Override
+    public boolean removeTask(long id) {
+        beginWrite();
+        try {
+            remember(id);
+            Task task = hmTasks.remove(id);
+            removeHistory(id);
+            if (task != null) {
+                entities.remove(id, task);
+                unschedule(task);
+                publish(id);
+            }
+            return (task != null);
+        } finally {
+            endWrite();
+        }
+    }
+
+    // методы Epic
+
+    // список всех эпиков
+    @Override
+    public List<Epic> getAllEpics() {
+        List<Epic> result = new ArrayList<>(hmEpics.size());
+        for (Epic epic : hmEpics.values()) {
+            result.add(copyOf(epic));
+        }
+        return result;
+    }
+
+    // удалить все эпики
+    @Override
+    public void removeAllEpics() {
+        for (Long id : hmEpics.keySet()) {
+            removeEpic(id);
+        }
+        // подзадачи без эпика тоже удаляются
+        removeAllSubtasks();
+    }
+
+    // получить эпик по идентификатору
+    @Override
+    public Epic getEpic(long id) {
+        Epic epic = hmEpics.get(id);
+        addHistory(epic);
+        return (epic != null) ? copyOf(epic) : null;
+    }
+
+    // копия эпика: подзадачи и сводные значения читаются под монитором эпика,
+    // наружу не отдается объект, который меняют другие потоки
+    private static Epic copyOf(Epic epic) {
+        Epic copy = new Epic(epic.getName(), epic.getDescription());
+        copy.setId(epic.getId());
+        synchronized (epic) {
+            copy.getSubtasks().addAll(epic.getSubtasks());
+        }
+        return copy;
+    }
+
+    // добавить новый эпик
+    @Override
+    public long createEpic(Epic newEpic) {
+        beginWrite();
+        try {
+            if (newEpic == null) {
+                return -1;
+            }
+            long id = getNextId();
+            remember(id);
+            newEpic.setId(id);
+            hmEpics.put(id, newEpic);
+            entities.put(id, newEpic);
+            publish(id);
+            return id;
+        } finally {
+            endWrite();
+        }
+    }
+
+    // обновить эпик
+    @Override
+    public long updateEpic(Epic epic) {
+        beginWrite();
+        try {
+            if (epic == null) {
+                return -1;
+            }
+            // подзадачи и сводные значения остаются у хранимого эпика: caller обычно передает
+            // копию из getEpic, в которой нет подзадач, добавленных после ее создания
+            Epic current = hmEpics.get(epic.getId());
+            if (current == null) {
+                return -1;
+            }
+            remember(epic.getId());
+            synchronized (current) {
+                current.setName(epic.getName());
+                current.setDescription(epic.getDescription());
+                publish(current.getId(), current);
+            }
+            return current.getId();
+        } finally {
+            endWrite();
+        }
+    }
+
+    // удалить эпик по идентификатору
+    @Override
+    public boolean removeEpic(long id) {
+        beginWrite();
+        try {
+            remember(id);
+            Epic epic = hmEpics.remove(id);
+            if (epic != null) {
+                entities.remove(id, epic);
+                // при удалении эпика удаляем все его подзадачи
+                synchronized (epic) {
+                    for (Subtask subtask : epic.getSubtasks()) {
+                        remember(subtask.getId());
+                        hmSubtasks.remove(subtask.getId(), subtask);
+                        entities.remove(subtask.getId(), subtask);
+                        unschedule(subtask);
+                        removeHistory(subtask.getId());
+                        publish(subtask.getId());
+                    }
+                    epic.getSubtasks().clear();
+                }
+                publish(id);
+            }
+            removeHistory(id);
+            return (epic != null);
+        } finally {
+            endWrite();
+        }
+    }
+
+    // методы Subtask
+
+    // список всех подзадачь
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(hmSubtasks.values());
+    }
+
+    // удалить все подзадачи
+    @Override
+    public void removeAllSubtasks() {
+        for (Long id : hmSubtasks.keySet()) {
+            removeSubtask(id);
+        }
+    }
+
+    // получить подзадачу по идентификатору
+    @Override
+    public Subtask getSubtask(long id) {
+        Subtask subtask = hmSubtasks.get(id);
+        addHistory(subtask);
+        return subtask;
+    }
+
+    // добавить новую подзадачу
+    @Override
+    public long createSubtask(Subtask newSubtask) {
+        beginWrite();
+        try {
+            if (newSubtask == null) {
+                return -1;
+            }
+            long id = getNextId();
+            remember(id);
+            newSubtask.setId(id);
+            Epic epic = hmEpics.get(newSubtask.getEpic());
+            if (epic == null) {
+                schedule(newSubtask, null);
+                hmSubtasks.put(id, newSubtask);
+                entities.put(id, newSubtask);
+                publish(id);
+                return id;
+            }
+            synchronized (epic) {
+                schedule(newSubtask, null);
+                hmSubtasks.put(id, newSubtask);
+                entities.put(id, newSubtask);
+                // эпик мог быть удален, пока ждали блокировку
+                if (hmEpics.get(epic.getId()) == epic) {
+                    epic.getSubtasks().add(newSubtask);
+                }
+                publish(id, epic);
+            }
+            return id;
+        } finally {
+            endWrite();
+        }
+    }
+
+    // обновить подзадачу
+    @Override
+    public long updateSubtask(Subtask subtask) {
+        beginWrite();
+        try {
+            if (subtask == null) {
+                return -1;
+            }
+            long id = subtask.getId();
+            Subtask oldSubtask = hmSubtasks.get(id);
+            // если не найдена подзадача то возвращаем ошибку
+            if (oldSubtask == null) {
+                return -1;
+            }
+            Epic epic = hmEpics.get(oldSubtask.getEpic());
+            Epic newEpic = (oldSubtask.getEpic() == subtask.getEpic()) ? epic : hmEpics.get(subtask.getEpic());
+            // если не найден эпик то возвращаем ошибку
+            if (epic == null || newEpic == null) {
+                return -1;
+            }
+            // эпики блокируются в порядке id, чтобы не было взаимной блокировки
+            remember(id);
+            Epic first = (epic.getId() <= newEpic.getId()) ? epic : newEpic;
+            Epic second = (first == epic) ? newEpic : epic;
+            synchronized (first) {
+                synchronized (second) {
+                    schedule(subtask, oldSubtask);
+                    hmSubtasks.put(id, subtask);
+                    entities.put(id, subtask);
+                    epic.getSubtasks().remove(oldSubtask);
+                    newEpic.getSubtasks().add(subtask);
+                    publish(id, epic, newEpic);
+                }
+            }
+            return id;
+        } finally {
+            endWrite();
+        }
+    }
+
+    // удалить подзадачу по идентификатору
+    @Override
+    public boolean removeSubtask(long id) {
+        beginWrite();
+        try {
+            Subtask subtask = hmSubtasks.get(id);
+            removeHistory(id);
+            // если подзадача не найдена то ошибка
+            if (subtask == null) {
+                return false;
+            }
+            remember(id);
+            Epic epic = hmEpics.get(subtask.getEpic());
+            if (epic == null) {
+                unschedule(subtask);
+                entities.remove(id, subtask);
+                boolean removed = hmSubtasks.remove(id, subtask);
+                publish(id);
+                return removed;
+            }
+            synchronized (epic) {
+                epic.getSubtasks().remove(subtask);
+                unschedule(subtask);
+                entities.remove(id, subtask);
+                boolean removed = hmSubtasks.remove(id, subtask);
+                publish(id, epic);
+                return removed;
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    // additional methods
+
+    // получить все подзадачи эпика
+    @Override
+    public List<Subtask> getEpicSubtasks(long epicId) {
+        Epic epic = hmEpics.get(epicId);
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+        synchronized (epic) {
+            return new ArrayList<>(epic.getSubtasks());
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return List.copyOf(prioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        scheduleLock.lock();
+        try {
+            intervals.forEachOverlapping((from != null) ? from : LocalDateTime.MIN,
+                    (to != null) ? to : LocalDateTime.MAX, id -> result.add(entities.get(id)));
+        } finally {
+            scheduleLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasks(int offset, int limit) {
+        return Paging.page(hmTasks.values(), offset, limit);
+    }
+
+    @Override
+    public List<Epic> getEpics(int offset, int limit) {
+        return Paging.page(hmEpics.values(), offset, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int offset, int limit) {
+        return Paging.page(hmSubtasks.values(), offset, limit);
+    }
+
+    // страницы по ключу: начало ищется в опубликованном снимке, упорядоченном по id,
+    // задачи, удаленные после публикации снимка, пропускаются
+
+    @Override
+    public List<Task> getTasksAfter(long afterId, int limit) {
+        return Paging.afterId(snapshot.get().tasksAfter(afterId), hmTasks::get, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsAfter(long afterId, int limit) {
+        return Paging.afterId(snapshot.get().epicsAfter(afterId), id -> {
+            Epic epic = hmEpics.get(id);
+            return (epic != null) ? copyOf(epic) : null;
+        }, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksAfter(long afterId, int limit) {
+        return Paging.afterId(snapshot.get().subtasksAfter(afterId), hmSubtasks::get, limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(int offset, int limit) {
+        return Paging.page(prioritizedTasks, offset, limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(Task after, int limit) {
+        return Paging.take((after == null) ? prioritizedTasks.iterator()
+                : prioritizedTasks.tailSet(after, false).iterator(), limit);
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return historyManager.getHistory(offset, limit);
+    }
+
+    @Override
+    public boolean validateIntersections(Task task) {
+        if (task == null || task.getStartTime() == null) return true;
+
+        scheduleLock.lock();
+        try {
+            return !intervals.overlaps(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public Task findById(long id) {
+        return entities.get(id);
+    }
+
+    // снимок публикуется при каждом изменении, чтение - без блокировок
+    @Override
+    public TaskSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    // transactions
+
+    // выполнить изменения атомарно: на время транзакции остальные изменения ждут,
+    // при исключении в body все изменения и история просмотров откатываются.
+    // Чтения не блокируются и могут увидеть незавершенную транзакцию
+    @Override
+    public void inTransaction(Runnable body) {
+        if (transactionLock.isWriteLockedByCurrentThread()) {
+            // вложенная транзакция - часть внешней
+            body.run();
+            return;
+        }
+        transactionLock.writeLock().lock();
+        try {
+            undo = new UndoLog(historyManager.getHistory());
+            boolean committed = false;
+            try {
+                body.run();
+                committed = true;
+            } finally {
+                UndoLog log = undo;
+                undo = null;
+                if (!committed) {
+                    log.rollback(entities::get, this::unlink, this::link);
+                    log.restoreHistory(historyManager);
+                    snapshot.set(TaskSnapshot.of(this));
+                }
+            }
+        } finally {
+            transactionLock.writeLock().unlock();
+        }
+    }
+
+    private void beginWrite() {
+        transactionLock.readLock().lock();
+    }
+
+    private void endWrite() {
+        transactionLock.readLock().unlock();
+    }
+
+    // запомнить исходную версию задачи до первого изменения в транзакции
+    private void remember(long id) {
+        if (undo != null) {
+            undo.remember(id, entities.get(id));
+        }
+    }
+
+    // убрать задачу из всех индексов без проверок, только при откате
+    private void unlink(Task task) {
+        long id = task.getId();
+        entities.remove(id);
+        if (task instanceof Epic) {
+            hmEpics.remove(id);
+            return;
+        }
+        unschedule(task);
+        if (task instanceof Subtask) {
+            hmSubtasks.remove(id);
+            Epic epic = hmEpics.get(((Subtask) task).getEpic());
+            if (epic != null) {
+                synchronized (epic) {
+                    epic.getSubtasks().remove(task);
+                }
+            }
+        } else {
+            hmTasks.remove(id);
+        }
+    }
+
+    // вернуть задачу во все индексы без проверок, только при откате
+    private void link(Task task) {
+        long id = task.getId();
+        entities.put(id, task);
+        if (task instanceof Epic) {
+            hmEpics.put(id, (Epic) task);
+            return;
+        }
+        prioritizedTasks.add(task);
+        if (task.getStartTime() != null) {
+            scheduleLock.lock();
+            try {
+                intervals.add(task);
+            } finally {
+                scheduleLock.unlock();
+            }
+        }
+        if (task instanceof Subtask) {
+            hmSubtasks.put(id, (Subtask) task);
+            Epic epic = hmEpics.get(((Subtask) task).getEpic());
+            if (epic != null) {
+                synchronized (epic) {
+                    // подзадача могла остаться в наборе эпика, пересчитываем ее вклад
+                    epic.getSubtasks().remove(task);
+                    epic.getSubtasks().add((Subtask) task);
+                }
+            }
+        } else {
+            hmTasks.put(id, task);
+        }
+    }
+
+    // получить новый идентификатор
+    private long getNextId() {
+        return ids.next();
+    }
+
+    // поставить задачу в расписание вместо старой версии, при пересечении - ManagerTimeException
+    private void schedule(Task task, Task oldTask) {
+        if (task.getStartTime() == null && (oldTask == null || oldTask.getStartTime() == null)) {
+            // задачи без времени не участвуют в проверке пересечений
+            if (oldTask != null) {
+                prioritizedTasks.remove(oldTask);
+            }
+            prioritizedTasks.add(task);
+            return;
+        }
+        scheduleLock.lock();
+        try {
+            // старая версия задачи в проверке не участвует
+            if (task.getStartTime() != null && intervals.overlaps(task, task.getId())) {
+                throw new ManagerTimeException("Not valid time");
+            }
+            if (oldTask != null) {
+                prioritizedTasks.remove(oldTask);
+            }
+            prioritizedTasks.add(task);
+            intervals.add(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // убрать задачу из расписания
+    private void unschedule(Task task) {
+        prioritizedTasks.remove(task);
+        if (task.getStartTime() == null) {
+            return;
+        }
+        scheduleLock.lock();
+        try {
+            intervals.remove(task.getId());
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // опубликовать текущую версию задачи и эпиков, чей статус и время от нее зависят.
+    // Вызывается под монитором этих эпиков; функция может выполниться повторно при гонке
+    private void publish(long id, Epic... epics) {
+        snapshot.updateAndGet(current -> {
+            Task task = entities.get(id);
+            TaskSnapshot result = (task != null) ? current.with(TaskView.of(task)) : current.without(id);
+            for (Epic epic : epics) {
+                if (hmEpics.get(epic.getId()) == epic) {
+                    result = result.with(TaskView.of(epic));
+                }
+            }
+            return result;
+        });
+    }
+
+    private void addHistory(Task task) {
+        historyManager.add(task);
+    }
+
+    private void removeHistory(long id) {
+        historyManager.remove(id);
+    }
+}
@@ -0,0 +1,85 @@
+package kanban.manager;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// построчное чтение CSV: значение в кавычках может содержать запятые, кавычки ("") и переводы строк
+public class CsvReader implements Closeable {
+    private final BufferedReader reader;
+
+    public CsvReader(Reader reader) {
+        this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    // следующая запись целиком (без перевода строки в конце), null - конец файла
+    public String readRecord() throws IOException {
+        String line = reader.readLine();
+        if (line == null || !oddQuotes(line)) {
+            return line;
+        }
+        // кавычка не закрыта - запись продолжается на следующей строке.
+        // Четность кавычек записи меняет только новая строка, уже прочитанное не пересчитывается
+        StringBuilder record = new StringBuilder(line);
+        boolean open = true;
+        while (open && (line = reader.readLine()) != null) {
+            record.append('\n').append(line);
+            open ^= oddQuotes(line);
+        }
+        return record.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // разбить запись на значения, кавычки вокруг значений убираются
+    public static List<String> split(String record) {
+        List<String> result = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                result.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        result.add(value.toString());
+        return result;
+    }
+
+    // значение в кавычках, кавычки внутри удваиваются
+    public static String quote(String value) {
+        String text = String.valueOf(value);
+        return "\"" + (text.indexOf('"') < 0 ? text : text.replace("\"", "\"\"")) + "\"";
+    }
+
+    // нечетное число кавычек в строке - она открывает или закрывает значение в кавычках
+    private static boolean oddQuotes(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count % 2 != 0;
+    }
+}
@@ -4,33 +4,97 @@ import kanban.exception.ManagerLoadException;
 import kanban.exception.ManagerSaveException;
 import kanban.model.*;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
-public class FileBackedTasksManager extends InMemoryTaskManager {
+public class FileBackedTasksManager extends InMemoryTaskManager implements AutoCloseable {
     private File storeFile;
+    private static final String HEADER = "id,type,name,status,description,epic,startTime,duration";
+    private static final String LOG_MARK = "log,";
     private DateTimeFormatter fmt = DateTimeFormatter.ISO_DATE_TIME;
+    // журнал изменений, null - каждое изменение перезаписывает весь файл
+    private Journal journal;
+    // журнал просмотров: чтение задачи дописывает id, не трогая файл с задачами
+    private Journal historyLog;
+    // порог размера журнала просмотров, после него журнал переписывается текущей историей
+    private long maxHistoryRecords = 1000;
+    // > 0 - изменения не записываются (восстановление, вложенные операции)
+    private int suspended;
+    // записи открытой транзакции, пишутся одной группой при ее завершении; null - вне транзакции
+    private List<String> transaction;
+    // записи пачки createAll/updateAll/removeAll, пишутся одной группой; null - вне пачки
+    private List<String> batch;
+    // при загрузке найдена поврежденная запись
+    private boolean damaged;
+    // в файле уже встречались записи с контрольной суммой - дальше все записи должны быть с ней
+    private boolean signed;
+    // копии поврежденных файлов (хранилища и сегментов журналов), сделанные перед перезаписью
+    private final List<File> quarantineFiles = new ArrayList<>();
+    // последний сегмент журнала, вошедший в загруженный снимок
+    private long snapshotGeneration;
+    // пороги размера журнала для записи снимка, 0 - без ограничения
+    private long maxJournalRecords = 10_000;
+    private long maxJournalBytes = 16 * 1024 * 1024;
+    // запись снимков в фоне, задачи выполняются строго по очереди
+    private ExecutorService compactor;
+    private Future<?> compaction;
+    // false - поврежденные файлы при загрузке не переносятся в карантин и не перезаписываются
+    private boolean repair = true;
 
     // default constructor
     public FileBackedTasksManager() {
         String fileName = "resources/taskmanager.csv";
         storeFile = new File(fileName);
+        historyLog = new Journal(new File(this.storeFile.getPath() + ".history"));
         load();
     }
 
     // constructor with backed file
     public FileBackedTasksManager(File storeFile) {
         this.storeFile = storeFile;
+        historyLog = new Journal(new File(this.storeFile.getPath() + ".history"));
+        load();
+    }
+
+    // constructor with backed file and journal mode:
+    // changes are appended to "<storeFile>.log.<n>" segments, save() writes a full snapshot
+    public FileBackedTasksManager(File storeFile, boolean journaled) {
+        this(storeFile, journaled, true);
+    }
+
+    private FileBackedTasksManager(File storeFile, boolean journaled, boolean repair) {
+        this.storeFile = storeFile;
+        this.repair = repair;
+        if (journaled) {
+            journal = new Journal(new File(storeFile.getPath() + ".log"));
+        }
+        historyLog = new Journal(new File(storeFile.getPath() + ".history"));
         load();
     }
 
@@ -39,91 +103,220 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         return new FileBackedTasksManager(file);
     }
 
+    // load stored tasks without side effects on the files: damaged data is skipped, not repaired
+    static FileBackedTasksManager readOnly(File file) {
+        return new FileBackedTasksManager(file, false, false);
+    }
+
     // load stored tasks
     protected void load() {
-        if (!storeFile.exists()) {
-            return;
+        if (storeFile.exists()) {
+            try (Reader reader = Files.newBufferedReader(storeFile.toPath(), StandardCharsets.UTF_8)) {
+                restore(reader);
+            } catch (IOException e) {
+                throw new ManagerLoadException("Error on load data", e);
+            }
+        }
+        boolean storeDamaged = damaged;
+        if (journal != null) {
+            journal.startAfter(snapshotGeneration);
+            replay();
+        }
+        replayHistory();
+        // переписать хранилище без поврежденных записей, исходные файлы сохраняются рядом:
+        // save() удаляет сегменты журналов, вошедшие в снимок
+        if (damaged && repair) {
+            if (storeDamaged) {
+                quarantine(storeFile);
+            }
+            if (journal != null) {
+                journal.getDamagedSegments().forEach(this::quarantine);
+            }
+            historyLog.getDamagedSegments().forEach(this::quarantine);
+            save();
         }
+    }
+
+    // restore tasks from String
+    protected void restore(String str) {
         try {
-            String line = Files.readString(Path.of(storeFile.toURI()));
-            restore(line);
+            restore(new StringReader(str));
         } catch (IOException e) {
             throw new ManagerLoadException("Error on load data", e);
         }
     }
 
-    // restore tasks from String
-    protected void restore(String str) {
-        String[] lines = str.split("\n");
+    // restore tasks record by record, without reading the whole file.
+    // Signed records are verified; reading stops at the first damaged record
+    protected void restore(Reader source) throws IOException {
+        CsvReader reader = new CsvReader(source);
         long maxId = -1;
-        int num = 1;
+        String header = reader.readRecord(); // skip header
+        signed = header != null && RecordChecksum.isSigned(header);
         // read tasks
-        for (; num < lines.length && !lines[num].isBlank(); num++) {
-            Task task = fromString(lines[num]);
-            maxId = Math.max(maxId, task.getId());
-            if (task instanceof Epic) {
-                createEpic((Epic) task, task.getId());
-            } else if (task instanceof Subtask) {
-                Subtask subtask = (Subtask) task;
-                createSubtask(subtask, subtask.getId());
-            } else {
-                createTask(task, task.getId());
+        String line;
+        while ((line = readVerified(reader)) != null && !line.isBlank()) {
+            Task task = parseTask(line);
+            if (task == null) {
+                damaged = true;
+                break;
             }
+            maxId = Math.max(maxId, task.getId());
+            restoreTask(task);
+        }
+        getIdGenerator().advanceTo(maxId + 1);
+        if (damaged) {
+            return;
         }
-        setCounter(maxId + 1);
         // read history
-        num++; // skip blank line
-        if (num < lines.length && !lines[num].isBlank()) {
-            List<Long> historyIds = historyFromString(lines[num]);
-            HistoryManager historyManager = getHistoryManager();
-            for (Long id : historyIds) {
-                Task task = getById(id);
-                if (task != null) {
-                    historyManager.add(task);
-                }
+        line = readVerified(reader);
+        if (line != null && !line.isBlank()) {
+            restoreHistory(historyFromString(line));
+        }
+        // read journal generation
+        line = readVerified(reader);
+        if (line != null && line.startsWith(LOG_MARK)) {
+            snapshotGeneration = Long.parseLong(line.substring(LOG_MARK.length()).trim());
+        }
+    }
+
+    // next record without checksum, null - end of file or damaged record
+    private String readVerified(CsvReader reader) throws IOException {
+        String line = reader.readRecord();
+        if (line == null || line.isBlank()) {
+            return line;
+        }
+        if (!RecordChecksum.isSigned(line)) {
+            if (signed) {
+                // после подписанных записей запись без суммы - оборванная или испорченная
+                damaged = true;
+                return null;
             }
+            return line; // файлы без контрольных сумм читаются как есть
         }
+        signed = true;
+        String record = RecordChecksum.verify(line);
+        if (record == null) {
+            damaged = true;
+        }
+        return record;
     }
 
-    // Convert task to String
-    protected String toString(Task task) {
-        TaskType type = TaskType.TASK;
+    // restore Task from String, null - record can't be parsed
+    private Task parseTask(String line) {
+        try {
+            return fromString(line);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // true - при загрузке найдена поврежденная запись, восстановлено все до нее
+    public boolean isDamaged() {
+        return damaged;
+    }
+
+    // копии поврежденных файлов до перезаписи, пусто - файлы не перезаписывались
+    public List<File> getQuarantineFiles() {
+        return Collections.unmodifiableList(quarantineFiles);
+    }
+
+    // сохранить исходный файл: записи после поврежденной можно восстановить вручную
+    private void quarantine(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        File target = new File(file.getPath() + ".damaged." + System.currentTimeMillis());
+        try {
+            Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error on quarantine damaged data", e);
+        }
+        quarantineFiles.add(target);
+    }
+
+    // restore tasks from binary store
+    protected void restore(BinaryTaskStore store) {
+        long maxId = -1;
+        BinaryTaskStore.Cursor cursor = store.cursor();
+        while (cursor.next()) {
+            maxId = Math.max(maxId, cursor.getId());
+            restoreTask(cursor.toTask());
+        }
+        getIdGenerator().advanceTo(maxId + 1);
+        restoreHistory(store.getHistory());
+    }
+
+    private void restoreTask(Task task) {
         if (task instanceof Epic) {
-            type = TaskType.EPIC;
+            createEpic((Epic) task, task.getId());
         } else if (task instanceof Subtask) {
-            type = TaskType.SUBTASK;
+            Subtask subtask = (Subtask) task;
+            createSubtask(subtask, subtask.getId());
+        } else {
+            createTask(task, task.getId());
+        }
+    }
+
+    private void restoreHistory(List<Long> historyIds) {
+        HistoryManager historyManager = getHistoryManager();
+        for (Long id : historyIds) {
+            Task task = findById(id);
+            if (task != null) {
+                historyManager.add(task);
+            }
         }
-        // id,type,name,status,description,epic
-        String line = String.format("%d,%s,\"%s\",%s,\"%s\",%s,%s,%d",
-                task.getId(), type, task.getName(), task.getState(), task.getDescription(),
-                (type == TaskType.SUBTASK) ? ((Subtask) task).getEpic() : "",
-                (task.getStartTime()!=null) ? task.getStartTime().format(fmt) : "",
-                task.getDuration()
-                );
-        return line;
     }
 
-    // remove quotas
-    protected String deQuote(String line) {
-        return (line != null && line.startsWith("\"") && line.endsWith("\""))
-                ? line.substring(1, line.length() - 1)
-                : line;
+    // Convert task to String
+    protected String toString(Task task) {
+        TaskType type = TaskType.of(task);
+        long epicId = (type == TaskType.SUBTASK) ? ((Subtask) task).getEpic() : -1;
+        return toString(task.getId(), type, task.getName(), task.getState(), task.getDescription(), epicId,
+                task.getStartTime(), task.getDuration());
+    }
+
+    // Convert task copy from a snapshot to String
+    private String toString(TaskView view) {
+        return toString(view.getId(), view.getType(), view.getName(), view.getState(), view.getDescription(),
+                view.getEpic(), view.getStartTime(), view.getDuration());
+    }
+
+    private String toString(long id, TaskType type, String name, TaskState state, String description,
+                            long epicId, LocalDateTime startTime, int duration) {
+        // id,type,name,status,description,epic,startTime,duration
+        StringBuilder line = new StringBuilder(64);
+        line.append(id).append(',')
+                .append(type).append(',')
+                .append(CsvReader.quote(name)).append(',')
+                .append(state).append(',')
+                .append(CsvReader.quote(description)).append(',');
+        if (type == TaskType.SUBTASK) {
+            line.append(epicId);
+        }
+        line.append(',');
+        if (startTime != null) {
+            line.append(startTime.format(fmt));
+        }
+        line.append(',').append(duration);
+        return line.toString();
     }
 
     // restore Task from String
     protected Task fromString(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 5) {
+        List<String> parts = CsvReader.split(line);
+        if (parts.size() < 5) {
             return null;
         }
-        long id = Long.parseLong(parts[0]);
-        TaskType type = TaskType.valueOf(parts[1]);
-        String name = deQuote(parts[2]);
-        TaskState state = TaskState.valueOf(parts[3]);
-        String desc = deQuote(parts[4]);
-        long epicId = (parts.length > 5 && !parts[5].isBlank()) ? Long.parseLong(parts[5]) : -1;
-        LocalDateTime startTime = (parts.length>6 && !parts[6].isBlank()) ? LocalDateTime.parse(parts[6],fmt) : null;
-        int duration = (parts.length>7 && !parts[7].isBlank()) ? Integer.parseInt(parts[7]) : 0;
+        long id = Long.parseLong(parts.get(0));
+        TaskType type = TaskType.valueOf(parts.get(1));
+        String name = parts.get(2);
+        TaskState state = TaskState.valueOf(parts.get(3));
+        String desc = parts.get(4);
+        long epicId = (parts.size() > 5 && !parts.get(5).isBlank()) ? Long.parseLong(parts.get(5)) : -1;
+        LocalDateTime startTime = (parts.size() > 6 && !parts.get(6).isBlank())
+                ? LocalDateTime.parse(parts.get(6), fmt) : null;
+        int duration = (parts.size() > 7 && !parts.get(7).isBlank()) ? Integer.parseInt(parts.get(7)) : 0;
 
         Task result;
         switch (type) {
@@ -151,10 +344,14 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
 
     // store history to String
     protected static String historyToString(HistoryManager manager) {
-        String result = manager.getHistory().stream()
-                .map(t -> String.valueOf(t.getId()))
-                .collect(Collectors.joining(","));
-        return result;
+        StringBuilder result = new StringBuilder();
+        for (Task task : manager.history()) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(task.getId());
+        }
+        return result.toString();
     }
 
     // restore history Ids from String
@@ -166,28 +363,219 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     }
 
     // write Task to
-    private void writeTask(Task task, Writer fw) {
-        try {
-            fw.write(toString(task));
-            fw.write("\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private void writeTask(Task task, Writer fw) throws IOException {
+        fw.write(RecordChecksum.sign(toString(task)));
+        fw.write("\n");
     }
 
     // save data to File
     protected void save() {
-        try (FileWriter fw = new FileWriter(storeFile)) {
-            fw.write("id,type,name,status,description,epic,startTime,duration\n");
-            getAllTasks().forEach(t -> writeTask(t, fw));
-            getAllEpics().forEach(t -> writeTask(t, fw));
-            getAllSubtasks().forEach(t -> writeTask(t, fw));
-            fw.write("\n");
-            fw.write(historyToString(getHistoryManager()));
-            fw.write("\n");
+        if (journal != null) {
+            compact(true);
+            return;
+        }
+        try {
+            writeAtomically(this::writeSnapshot);
         } catch (IOException e) {
             throw new ManagerSaveException("Error on save data", e);
         }
+        // история записана в файл, прежние просмотры больше не нужны
+        historyLog.deleteUpTo(historyLog.rotate());
+    }
+
+    // write tasks and history in CSV layout, every record is signed with a checksum
+    private void writeSnapshot(Writer fw) throws IOException {
+        fw.write(RecordChecksum.sign(HEADER));
+        fw.write("\n");
+        for (Task task : getAllTasks()) {
+            writeTask(task, fw);
+        }
+        for (Task task : getAllEpics()) {
+            writeTask(task, fw);
+        }
+        for (Task task : getAllSubtasks()) {
+            writeTask(task, fw);
+        }
+        fw.write("\n");
+        String history = historyToString(getHistoryManager());
+        if (!history.isEmpty()) {
+            fw.write(RecordChecksum.sign(history));
+        }
+        fw.write("\n");
+    }
+
+    // set journal size limits for background snapshot, 0 - no limit
+    public void setCompaction(long maxRecords, long maxBytes) {
+        maxJournalRecords = maxRecords;
+        maxJournalBytes = maxBytes;
+    }
+
+    // write snapshot of the board from another TaskSnapshot version, no access to the manager
+    private void writeSnapshot(Writer fw, TaskSnapshot board, String history, long generation)
+            throws IOException {
+        fw.write(RecordChecksum.sign(HEADER));
+        fw.write("\n");
+        for (TaskView view : board.getTasks()) {
+            writeTask(view, fw);
+        }
+        for (TaskView view : board.getEpics()) {
+            writeTask(view, fw);
+        }
+        for (TaskView view : board.getSubtasks()) {
+            writeTask(view, fw);
+        }
+        fw.write("\n");
+        if (!history.isEmpty()) {
+            fw.write(RecordChecksum.sign(history));
+        }
+        fw.write("\n");
+        fw.write(RecordChecksum.sign(LOG_MARK + generation));
+        fw.write("\n");
+    }
+
+    private void writeTask(TaskView view, Writer fw) throws IOException {
+        fw.write(RecordChecksum.sign(toString(view)));
+        fw.write("\n");
+    }
+
+    // write snapshot and switch to a new journal segment
+    protected void compact(boolean wait) {
+        if (compaction != null) {
+            if (!wait && !compaction.isDone()) {
+                return; // предыдущий снимок еще пишется
+            }
+            // ошибка предыдущего снимка не теряется: сегменты журнала после нее не удалены,
+            // следующий вызов запишет снимок заново
+            Future<?> previous = compaction;
+            compaction = null;
+            awaitCompaction(previous);
+        }
+        // на вызывающем потоке берется только неизменяемый снимок доски (обновляется
+        // по изменениям после предыдущего), запись CSV идет в фоне
+        TaskSnapshot board = snapshot();
+        String history = historyToString(getHistoryManager());
+        long generation = journal.rotate();
+        long historyGeneration = historyLog.rotate();
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "kanban-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compaction = compactor.submit(() -> {
+            writeAtomically(fw -> writeSnapshot(fw, board, history, generation));
+            journal.deleteUpTo(generation);
+            historyLog.deleteUpTo(historyGeneration);
+            return null;
+        });
+        if (wait) {
+            awaitCompaction(compaction);
+        }
+    }
+
+    private void awaitCompaction(Future<?> compaction) {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Interrupted on save data", e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Error on save data", e.getCause());
+        }
+    }
+
+    private void writeAtomically(SnapshotWriter writer) throws IOException {
+        writeAtomically(storeFile, out -> {
+            Writer fw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(fw);
+            fw.flush();
+        });
+    }
+
+    // write data to temp file, fsync it and move it over the target file,
+    // so a crash leaves either the old or the new file
+    static void writeAtomically(File file, StreamWriter writer) throws IOException {
+        Path target = file.toPath();
+        Path temp = Path.of(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            writer.write(out);
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // fsync the directory, so the rename itself survives a crash
+    private static void syncDirectory(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // каталог нельзя открыть как файл (Windows) - переименование сбрасывает сама ОС
+        }
+    }
+
+    // writes snapshot content
+    private interface SnapshotWriter {
+        void write(Writer fw) throws IOException;
+    }
+
+    // writes file content, the stream is closed by writeAtomically
+    interface StreamWriter {
+        void write(FileOutputStream out) throws IOException;
+    }
+
+    // group commit: changes are acknowledged once queued, the flusher thread
+    // writes and fsyncs them every intervalMillis or after batchSize records
+    public void enableGroupCommit(long intervalMillis, int batchSize) {
+        if (journal == null) {
+            throw new IllegalStateException("Group commit requires journal mode");
+        }
+        journal.enableGroupCommit(intervalMillis, batchSize);
+        historyLog.enableGroupCommit(intervalMillis, batchSize);
+    }
+
+    // write all queued changes and wait for the background snapshot
+    public void flush() {
+        if (journal != null) {
+            journal.flush();
+        }
+        historyLog.flush();
+        Future<?> previous = compaction;
+        compaction = null;
+        awaitCompaction(previous);
+    }
+
+    // flush and stop background threads, must be called on orderly shutdown
+    @Override
+    public void close() {
+        flush();
+        if (journal != null) {
+            journal.close();
+        }
+        historyLog.close();
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+    }
+
+    protected Journal getJournal() {
+        return journal;
+    }
+
+    protected Journal getHistoryLog() {
+        return historyLog;
     }
 
 
@@ -195,42 +583,42 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public void removeAllTasks() {
         super.removeAllTasks();
-        save();
+        store(Journal.Op.CLEAR, TaskType.TASK.name());
     }
 
     // remove subtasks
     @Override
     public void removeAllSubtasks() {
         super.removeAllSubtasks();
-        save();
+        store(Journal.Op.CLEAR, TaskType.SUBTASK.name());
     }
 
     // remove epics
     @Override
     public void removeAllEpics() {
         super.removeAllEpics();
-        save();
+        store(Journal.Op.CLEAR, TaskType.EPIC.name());
     }
 
     // get Task by Id
     @Override
     public Task getTask(long id) {
         Task res = super.getTask(id);
-        save();
+        storeView(res);
         return res;
     }
 
     // get Subtask by Id
     public Subtask getSubtask(long id) {
         Subtask res = super.getSubtask(id);
-        save();
+        storeView(res);
         return res;
     }
 
     // get Epic by Id
     public Epic getEpic(long id) {
         Epic res = super.getEpic(id);
-        save();
+        storeView(res);
         return res;
     }
 
@@ -238,7 +626,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public long createTask(Task task) {
         long id = super.createTask(task);
-        save();
+        storeTask(Journal.Op.CREATE, task, id);
         return id;
     }
 
@@ -246,7 +634,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public long createSubtask(Subtask subtask) {
         long id = super.createSubtask(subtask);
-        save();
+        storeTask(Journal.Op.CREATE, subtask, id);
         return id;
     }
 
@@ -254,7 +642,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public long createEpic(Epic epic) {
         long id = super.createEpic(epic);
-        save();
+        storeTask(Journal.Op.CREATE, epic, id);
         return id;
     }
 
@@ -262,7 +650,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public long updateTask(Task task) {
         long id = super.updateTask(task);
-        save();
+        storeTask(Journal.Op.UPDATE, task, id);
         return id;
     }
 
@@ -270,7 +658,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public long updateEpic(Epic epic) {
         long id = super.updateEpic(epic);
-        save();
+        storeTask(Journal.Op.UPDATE, epic, id);
         return id;
     }
 
@@ -278,7 +666,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public long updateSubtask(Subtask subtask) {
         long id = super.updateSubtask(subtask);
-        save();
+        storeTask(Journal.Op.UPDATE, subtask, id);
         return id;
     }
 
@@ -286,7 +674,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public boolean removeTask(long id) {
         boolean res = super.removeTask(id);
-        save();
+        storeRemove(TaskType.TASK, id, res);
         return res;
     }
 
@@ -294,18 +682,275 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public boolean removeSubtask(long id) {
         boolean res = super.removeSubtask(id);
-        save();
+        storeRemove(TaskType.SUBTASK, id, res);
         return res;
     }
 
     // remove Epic by Id
     @Override
     public boolean removeEpic(long id) {
-        boolean res = super.removeEpic(id);
-        save();
+        // подзадачи удаляются вместе с эпиком, отдельные записи для них не нужны
+        suspended++;
+        boolean res;
+        try {
+            res = super.removeEpic(id);
+        } finally {
+            suspended--;
+        }
+        storeRemove(TaskType.EPIC, id, res);
         return res;
     }
 
+    // create tasks in one batch, the batch is persisted once
+    @Override
+    public long[] createAll(Collection<? extends Task> tasks) {
+        boolean started = beginBatch();
+        try {
+            return super.createAll(tasks);
+        } finally {
+            endBatch(started);
+        }
+    }
+
+    // update tasks in one batch
+    @Override
+    public long[] updateAll(Collection<? extends Task> tasks) {
+        boolean started = beginBatch();
+        try {
+            return super.updateAll(tasks);
+        } finally {
+            endBatch(started);
+        }
+    }
+
+    // remove tasks in one batch
+    @Override
+    public boolean[] removeAll(long[] ids) {
+        boolean started = beginBatch();
+        try {
+            return super.removeAll(ids);
+        } finally {
+            endBatch(started);
+        }
+    }
+
+    // run changes atomically, the whole transaction is persisted once after it succeeds
+    @Override
+    public void inTransaction(Runnable body) {
+        if (transaction != null) {
+            super.inTransaction(body);
+            return;
+        }
+        transaction = new ArrayList<>();
+        List<String> records;
+        boolean committed = false;
+        try {
+            super.inTransaction(body);
+            committed = true;
+        } finally {
+            records = transaction;
+            transaction = null;
+            if (!committed) {
+                // история откатилась, журнал просмотров переписываем ею
+                compactHistory();
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        if (journal != null) {
+            journal.appendTransaction(records);
+            compactIfNeeded();
+        } else {
+            save();
+        }
+    }
+
+    // journal
+
+    // store one change: append it to the journal or rewrite the whole file
+    private void store(Journal.Op op, String payload) {
+        if (suspended > 0) {
+            return;
+        }
+        if (transaction != null) {
+            transaction.add(Journal.record(op, payload));
+            return;
+        }
+        if (batch != null) {
+            batch.add(Journal.record(op, payload));
+            return;
+        }
+        if (journal != null) {
+            journal.append(op, payload);
+            compactIfNeeded();
+        } else {
+            save();
+        }
+    }
+
+    // start compaction when the journal segment is over the limits
+    private void compactIfNeeded() {
+        if ((maxJournalRecords > 0 && journal.getRecords() >= maxJournalRecords)
+                || (maxJournalBytes > 0 && journal.getBytes() >= maxJournalBytes)) {
+            compact(false);
+        }
+    }
+
+    // start collecting changes of a batch, false - already inside a batch or a transaction
+    private boolean beginBatch() {
+        if (batch != null || transaction != null) {
+            return false;
+        }
+        batch = new ArrayList<>();
+        return true;
+    }
+
+    // store the applied part of a batch with one journal write or one rewrite of the file,
+    // also when the batch is interrupted by an exception
+    private void endBatch(boolean started) {
+        if (!started) {
+            return;
+        }
+        List<String> records = batch;
+        batch = null;
+        if (records.isEmpty()) {
+            return;
+        }
+        if (journal != null) {
+            journal.appendRecords(records);
+            compactIfNeeded();
+        } else {
+            save();
+        }
+    }
+
+    private void storeTask(Journal.Op op, Task task, long id) {
+        if (id >= 0) {
+            store(op, toString(task));
+        }
+    }
+
+    private void storeRemove(TaskType type, long id, boolean removed) {
+        if (removed) {
+            store(Journal.Op.REMOVE, type.name() + "," + id);
+        }
+    }
+
+    // store view: append the id to the history log
+    private void storeView(Task task) {
+        if (task == null || suspended > 0) {
+            return;
+        }
+        historyLog.append(Journal.Op.VIEW, String.valueOf(task.getId()));
+        if (maxHistoryRecords > 0 && historyLog.getRecords() >= maxHistoryRecords) {
+            compactHistory();
+        }
+    }
+
+    // rewrite history log with the current history only
+    private void compactHistory() {
+        long generation = historyLog.rotate();
+        for (Task task : getHistoryManager().history()) {
+            historyLog.append(Journal.Op.VIEW, String.valueOf(task.getId()));
+        }
+        historyLog.deleteUpTo(generation);
+    }
+
+    // set history log size limit, 0 - no limit
+    public void setHistoryCompaction(long maxRecords) {
+        maxHistoryRecords = maxRecords;
+    }
+
+    // replay journal on top of the loaded snapshot
+    protected void replay() {
+        suspended++;
+        try {
+            damaged |= !journal.replay(snapshotGeneration, this::apply);
+        } finally {
+            suspended--;
+        }
+    }
+
+    // replay views made after the snapshot
+    protected void replayHistory() {
+        suspended++;
+        try {
+            damaged |= !historyLog.replay(0, this::apply);
+        } finally {
+            suspended--;
+        }
+    }
+
+    // apply one journal record
+    private void apply(Journal.Op op, String payload) {
+        switch (op) {
+            case CREATE: {
+                Task task = fromString(payload);
+                getIdGenerator().advanceTo(task.getId() + 1);
+                if (task instanceof Epic) {
+                    createEpic((Epic) task, task.getId());
+                } else if (task instanceof Subtask) {
+                    createSubtask((Subtask) task, task.getId());
+                } else {
+                    createTask(task, task.getId());
+                }
+                break;
+            }
+            case UPDATE: {
+                Task task = fromString(payload);
+                if (task instanceof Epic) {
+                    // подзадачи эпика в записи не хранятся, обновляем существующий объект
+                    Epic epic = (Epic) findById(task.getId());
+                    if (epic != null) {
+                        epic.setName(task.getName());
+                        epic.setDescription(task.getDescription());
+                        super.updateEpic(epic);
+                    }
+                } else if (task instanceof Subtask) {
+                    super.updateSubtask((Subtask) task);
+                } else {
+                    super.updateTask(task);
+                }
+                break;
+            }
+            case REMOVE: {
+                String[] parts = payload.split(",");
+                long id = Long.parseLong(parts[1]);
+                switch (TaskType.valueOf(parts[0])) {
+                    case EPIC:
+                        super.removeEpic(id);
+                        break;
+                    case SUBTASK:
+                        super.removeSubtask(id);
+                        break;
+                    default:
+                        super.removeTask(id);
+                }
+                break;
+            }
+            case CLEAR:
+                switch (TaskType.valueOf(payload)) {
+                    case EPIC:
+                        super.removeAllEpics();
+                        break;
+                    case SUBTASK:
+                        super.removeAllSubtasks();
+                        break;
+                    default:
+                        super.removeAllTasks();
+                }
+                break;
+            case VIEW: {
+                Task task = findById(Long.parseLong(payload));
+                if (task != null) {
+                    getHistoryManager().add(task);
+                }
+                break;
+            }
+        }
+    }
+
     public static void main(String[] args) {
         File file = new File("resources/example.csv");
         FileBackedTasksManager manager = new FileBackedTasksManager(file);
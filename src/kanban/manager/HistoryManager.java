@@ -3,6 +3,7 @@ package kanban.manager;
 import kanban.model.Task;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 // хранит историю просмотров задач
 public interface HistoryManager {
@@ -15,5 +16,26 @@ public interface HistoryManager {
     // последние 10 просмотренных задач
     List<Task> getHistory();
 
+    // страница истории: offset - сколько пропустить, limit - размер страницы
+    default List<Task> getHistory(int offset, int limit) {
+        return Paging.page(getHistory(), offset, limit);
+    }
+
+    // история только для чтения, от давних просмотров к последним, без копирования списка.
+    // Историю нельзя менять во время обхода
+    default Iterable<Task> history() {
+        return getHistory();
+    }
+
+    // передать в action не больше limit последних просмотров, начиная с самого нового
+    default void forEachRecent(int limit, Consumer<? super Task> action) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        List<Task> history = getHistory();
+        for (int i = history.size() - 1; i >= Math.max(0, history.size() - limit); i--) {
+            action.accept(history.get(i));
+        }
+    }
 
 }
\ No newline at end of file
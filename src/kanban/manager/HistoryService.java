@@ -0,0 +1,171 @@
+package kanban.manager;
+
+import kanban.model.Task;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// истории просмотров по пользователям (сессиям): у каждого своя ограниченная история.
+// Задачи в историях не копируются - все истории ссылаются на общие объекты, поэтому
+// запись истории стоит один узел списка и ячейку индекса.
+// Пользователи, не обращавшиеся дольше idleTimeout, вытесняются; если примерный объем
+// историй больше maxBytes, вытесняются пользователи, обращавшиеся раньше всех
+public class HistoryService {
+    // примерный размер записи истории: узел списка (24 байта) и ячейка индекса с запасом
+    // на незаполненную таблицу
+    static final int ENTRY_BYTES = 48;
+    // примерный размер пустой истории пользователя: Partition, InMemoryHistoryManager,
+    // пустой индекс на 16 ячеек и элемент partitions; имя пользователя считается отдельно
+    static final int PARTITION_BYTES = 400;
+
+    private final int capacity;
+    private final long idleMillis;
+    private final long maxBytes;
+    private final LongSupplier clock;
+    // истории в порядке последнего обращения: первой идет самая давняя
+    private final LinkedHashMap<String, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true);
+    // записей во всех историях
+    private int entries;
+    // примерный объем всех историй
+    private long bytes;
+
+    public HistoryService(int capacity, Duration idleTimeout, long maxBytes) {
+        this(capacity, idleTimeout, maxBytes, System::currentTimeMillis);
+    }
+
+    HistoryService(int capacity, Duration idleTimeout, long maxBytes, LongSupplier clock) {
+        // в бюджет должна помещаться хотя бы одна полная история
+        long partitionBytes = PARTITION_BYTES + (long) capacity * ENTRY_BYTES;
+        if (maxBytes < partitionBytes) {
+            throw new IllegalArgumentException("maxBytes must fit a full history of " + capacity
+                    + " entries: " + maxBytes + " < " + partitionBytes);
+        }
+        this.capacity = capacity;
+        this.idleMillis = idleTimeout.toMillis();
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    // добавить задачу в историю пользователя
+    public synchronized void add(String user, Task task) {
+        if (task == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        evictIdle(now);
+        Partition partition = partitions.get(user);
+        if (partition == null) {
+            // строка имени хранится по байту на символ, UTF-16 - по два
+            partition = new Partition(capacity, PARTITION_BYTES + 2L * user.length());
+            partitions.put(user, partition);
+            bytes += partition.overhead;
+        }
+        partition.lastAccess = now;
+        int before = partition.history.size();
+        partition.history.add(task);
+        count(partition.history.size() - before);
+        // бюджет превышен - вытесняем самых давних пользователей, кроме текущего
+        Iterator<Partition> eldest = partitions.values().iterator();
+        while (bytes > maxBytes) {
+            Partition evicted = eldest.next();
+            if (evicted == partition) {
+                break;
+            }
+            release(evicted);
+            eldest.remove();
+        }
+    }
+
+    // история пользователя, от давних просмотров к последним
+    public synchronized List<Task> getHistory(String user) {
+        long now = clock.getAsLong();
+        evictIdle(now);
+        Partition partition = partitions.get(user);
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        partition.lastAccess = now;
+        return partition.history.getHistory();
+    }
+
+    // удалить задачу из истории пользователя
+    public synchronized void remove(String user, long id) {
+        Partition partition = partitions.get(user);
+        if (partition != null) {
+            int before = partition.history.size();
+            partition.history.remove(id);
+            count(partition.history.size() - before);
+        }
+    }
+
+    // удалить историю пользователя (конец сессии)
+    public synchronized void removeUser(String user) {
+        Partition partition = partitions.remove(user);
+        if (partition != null) {
+            release(partition);
+        }
+    }
+
+    // вытеснить пользователей, не обращавшихся дольше idleTimeout, возвращает их количество
+    public synchronized int evictIdle() {
+        return evictIdle(clock.getAsLong());
+    }
+
+    // количество пользователей с историей
+    public synchronized int size() {
+        return partitions.size();
+    }
+
+    // записей во всех историях
+    public synchronized int entries() {
+        return entries;
+    }
+
+    // примерный объем всех историй в байтах
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private void count(int delta) {
+        entries += delta;
+        bytes += (long) delta * ENTRY_BYTES;
+    }
+
+    // вычесть из бюджета удаляемую историю
+    private void release(Partition partition) {
+        count(-partition.history.size());
+        bytes -= partition.overhead;
+    }
+
+    private int evictIdle(long now) {
+        int count = 0;
+        Iterator<Partition> eldest = partitions.values().iterator();
+        // истории упорядочены по обращению, первая не простаивающая - конец поиска
+        while (eldest.hasNext()) {
+            Partition partition = eldest.next();
+            if (now - partition.lastAccess <= idleMillis) {
+                break;
+            }
+            release(partition);
+            eldest.remove();
+            count++;
+        }
+        return count;
+    }
+
+    private static class Partition {
+        private final InMemoryHistoryManager history;
+        // объем пустой истории
+        private final long overhead;
+        private long lastAccess;
+
+        Partition(int capacity, long overhead) {
+            history = new InMemoryHistoryManager(capacity);
+            this.overhead = overhead;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package kanban.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// генератор идентификаторов менеджера, без блокировок.
+// Потоки записи и импорт могут забрать сразу блок идентификаторов и раздавать их сами
+public class IdGenerator {
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    // следующий свободный идентификатор
+    private final AtomicLong next;
+
+    public IdGenerator() {
+        this(0);
+    }
+
+    public IdGenerator(long first) {
+        next = new AtomicLong(first);
+    }
+
+    // получить новый идентификатор
+    public long next() {
+        return next.getAndIncrement();
+    }
+
+    // следующий идентификатор, который будет выдан
+    public long peek() {
+        return next.get();
+    }
+
+    // установить следующий идентификатор
+    public void set(long value) {
+        next.set(value);
+    }
+
+    // не выдавать идентификаторы меньше value (при восстановлении из файла)
+    public void advanceTo(long value) {
+        next.accumulateAndGet(value, Math::max);
+    }
+
+    // зарезервировать блок из DEFAULT_BLOCK_SIZE идентификаторов
+    public Block reserve() {
+        return reserve(DEFAULT_BLOCK_SIZE);
+    }
+
+    // зарезервировать блок из size идентификаторов подряд
+    public Block reserve(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + size);
+        }
+        long first = next.getAndAdd(size);
+        return new Block(first, first + size);
+    }
+
+    // блок идентификаторов [first, end), используется одним потоком
+    public static class Block {
+        private final long end;
+        private long current;
+
+        private Block(long first, long end) {
+            this.current = first;
+            this.end = end;
+        }
+
+        public boolean hasNext() {
+            return current < end;
+        }
+
+        public long next() {
+            if (current >= end) {
+                throw new IllegalStateException("Id block is exhausted");
+            }
+            return current++;
+        }
+
+        // сколько идентификаторов еще осталось
+        public long remaining() {
+            return end - current;
+        }
+    }
+}
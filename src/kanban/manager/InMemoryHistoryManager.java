@@ -3,16 +3,43 @@ package kanban.manager;
 import kanban.model.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
-// хранит историю просмотров задач в памяти
+// хранит историю просмотров задач в памяти.
+// Размер истории ограничен capacity: при переполнении вытесняется самый давний просмотр
 public class InMemoryHistoryManager implements HistoryManager {
+    // без ограничения размера
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final int capacity;
     // ссылка на первый элемент списка
     private Node head;
     private Node tail;
     // ссылки на элементы истории по id
-    private final HashMap<Long, Node> index = new HashMap<>();
+    private final LongHashMap<Node> index = new LongHashMap<>();
+
+    public InMemoryHistoryManager() {
+        this(UNBOUNDED);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // количество задач в истории
+    public int size() {
+        return index.size();
+    }
 
     @Override
     // добавить задачу в историю
@@ -23,6 +50,11 @@ public class InMemoryHistoryManager implements HistoryManager {
         removeNode(index.remove(task.getId()));
         linkLast(task);
         index.put(task.getId(), tail);
+        if (index.size() > capacity) {
+            // вытесняем самый давний просмотр
+            index.remove(head.value.getId());
+            removeNode(head);
+        }
     }
 
     // удалить запись по истории по id
@@ -41,6 +73,60 @@ public class InMemoryHistoryManager implements HistoryManager {
         return getTasks();
     }
 
+    // страница истории без копирования всего списка
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+        ArrayList<Task> res = new ArrayList<>(Math.min(limit, index.size()));
+        Node node = head;
+        for (int i = 0; i < offset && node != null; i++) {
+            node = node.next;
+        }
+        while (node != null && res.size() < limit) {
+            res.add(node.value);
+            node = node.next;
+        }
+        return res;
+    }
+
+    // обход списка узлов без копирования
+    @Override
+    public Iterable<Task> history() {
+        return () -> new Iterator<>() {
+            private Node node = head;
+
+            @Override
+            public boolean hasNext() {
+                return node != null;
+            }
+
+            @Override
+            public Task next() {
+                if (node == null) {
+                    throw new NoSuchElementException();
+                }
+                Task task = node.value;
+                node = node.next;
+                return task;
+            }
+        };
+    }
+
+    // обход с конца списка
+    @Override
+    public void forEachRecent(int limit, Consumer<? super Task> action) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        Node node = tail;
+        for (int i = 0; i < limit && node != null; i++) {
+            action.accept(node.value);
+            node = node.prev;
+        }
+    }
+
     // CustomLinkedList methods
 
     // добавить запись в конец списка
@@ -57,7 +143,7 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     // получить историю в виде списка
     private List<Task> getTasks() {
-        ArrayList<Task> res = new ArrayList<>();
+        ArrayList<Task> res = new ArrayList<>(index.size());
         if (head != null) {
             Node node = head;
             while (node != null) {
@@ -4,32 +4,79 @@ import kanban.exception.ManagerTimeException;
 import kanban.model.Epic;
 import kanban.model.Subtask;
 import kanban.model.Task;
+import kanban.model.TaskState;
+import kanban.model.TaskType;
+import kanban.model.TaskView;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
 
 // Менеджер задачь, хранит данные в памяти
 
 public class InMemoryTaskManager implements TaskManager {
 
     // менеджер истории просмотров
-    private final HistoryManager historyManager = Manager.getDefaultHistory();
-
-    // счетчик для получения уникального идентификатора
-    private static long counter = 0;
-
-    private HashMap<Long, Task> hmTasks = new HashMap<>();      // список kanban.model.Task
-    private HashMap<Long, Epic> hmEpics = new HashMap<>();      // список kanban.model.Epic
-    private HashMap<Long, Subtask> hmSubtasks = new HashMap<>();// список kanban.model.Subtask
+    private final HistoryManager historyManager;
+
+    // генератор уникальных идентификаторов, свой у каждого менеджера
+    private final IdGenerator ids = new IdGenerator();
+    // идентификаторы, зарезервированные для текущей пачки createAll; null - вне пачки
+    private IdGenerator.Block batchIds;
+
+    private LongHashMap<Task> hmTasks = new LongHashMap<>();      // список kanban.model.Task
+    private LongHashMap<Epic> hmEpics = new LongHashMap<>();      // список kanban.model.Epic
+    private LongHashMap<Subtask> hmSubtasks = new LongHashMap<>();// список kanban.model.Subtask
+    // общий индекс задач всех типов по id, тип определяется по TaskType.of
+    private final LongHashMap<Task> entities = new LongHashMap<>();
     private TreeSet<Task> prioritizedTasks = new TreeSet<>();
+    // интервалы задач со временем для проверки пересечений
+    private final IntervalIndex intervals = new IntervalIndex();
+    // задачи по статусам для выборок по колонкам доски
+    private final StateIndex<Task> tasksByState = new StateIndex<>();
+    private final StateIndex<Epic> epicsByState = new StateIndex<>();
+    private final StateIndex<Subtask> subtasksByState = new StateIndex<>();
+    // истории просмотров по пользователям, создаются при первом обращении
+    private HistoryService userHistory;
+    // журнал отката текущей транзакции, null - вне транзакции
+    private UndoLog undo;
+    // последний собранный снимок и id, измененные после него
+    // (null - снимок еще не запрашивали, изменения не отслеживаются)
+    private TaskSnapshot snapshot;
+    private final LongHashMap<Boolean> changed = new LongHashMap<>();
+    // поток событий, null - пока никто не подписался
+    private SubmissionPublisher<TaskEvent> events;
+    private long eventVersion;
+    // события транзакции отправляются только после ее фиксации
+    private List<TaskEvent> pendingEvents;
+
+    public InMemoryTaskManager() {
+        this(Manager.getDefaultHistory());
+    }
+
+    // менеджер со своей историей просмотров, например другого размера
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
 
     // methods
 
     protected void setCounter(long value) {
-        counter = value;
+        ids.set(value);
+    }
+
+    protected long getCounter() {
+        return ids.peek();
+    }
+
+    protected IdGenerator getIdGenerator() {
+        return ids;
     }
 
     // методы kanban.model.Task
@@ -44,10 +91,14 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void removeAllTasks() {
         for (Task task : hmTasks.values()) {
+            remember(task.getId());
             historyManager.remove(task.getId());
-            prioritizedTasks.remove(task);
+            removePrioritized(task);
+            entities.remove(task.getId());
+            publish(TaskEvent.Type.REMOVED, task);
         }
         hmTasks.clear();
+        tasksByState.clear();
     }
 
     // получить задачу по идентификатору
@@ -55,6 +106,7 @@ public class InMemoryTaskManager implements TaskManager {
     public Task getTask(long id) {
         Task task = hmTasks.get(id);
         historyManager.add(task);
+        publish(TaskEvent.Type.VIEWED, task);
         return task;
     }
 
@@ -63,9 +115,13 @@ public class InMemoryTaskManager implements TaskManager {
         if (!validateIntersections(newTask)) {
             throw new ManagerTimeException("Not valid time");
         }
+        remember(id);
         newTask.setId(id);
         hmTasks.put(id, newTask);
-        prioritizedTasks.add(newTask);
+        entities.put(id, newTask);
+        tasksByState.put(newTask);
+        addPrioritized(newTask);
+        publish(TaskEvent.Type.CREATED, newTask);
         return id;
     }
 
@@ -84,22 +140,33 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null) {
             return -1;
         }
-        if (!validateIntersections(task)) {
+        if (!validateUpdate(task)) {
             throw new ManagerTimeException("Not valid time");
         }
+        remember(task.getId());
         Task oldTask = hmTasks.remove(task.getId());
         hmTasks.put(task.getId(), task);
-        prioritizedTasks.remove(oldTask);
-        prioritizedTasks.add(task);
+        entities.put(task.getId(), task);
+        tasksByState.put(task);
+        removePrioritized(oldTask);
+        addPrioritized(task);
+        publish(TaskEvent.Type.UPDATED, task);
         return task.getId();
     }
 
     // удалить задачу
     @Override
     public boolean removeTask(long id) {
+        remember(id);
         Task task = hmTasks.remove(id);
         historyManager.remove(id);
-        prioritizedTasks.remove(task);
+        removePrioritized(task);
+        if (task != null) {
+            entities.remove(id);
+            tasksByState.remove(id);
+            publish(TaskEvent.Type.REMOVED, task);
+        }
+        forget(id);
         return (task != null);
     }
 
@@ -114,15 +181,23 @@ public class InMemoryTaskManager implements TaskManager {
     // удалить все эпики
     @Override
     public void removeAllEpics() {
-        for (Long id : hmEpics.keySet()) {
-            historyManager.remove(id);
+        for (Epic epic : hmEpics.values()) {
+            remember(epic.getId());
+            historyManager.remove(epic.getId());
+            entities.remove(epic.getId());
+            publish(TaskEvent.Type.REMOVED, epic);
         }
         for (Subtask subtask : hmSubtasks.values()) {
+            remember(subtask.getId());
             historyManager.remove(subtask.getId());
-            prioritizedTasks.remove(subtask);
+            removePrioritized(subtask);
+            entities.remove(subtask.getId());
+            publish(TaskEvent.Type.REMOVED, subtask);
         }
         hmEpics.clear();
         hmSubtasks.clear();
+        epicsByState.clear();
+        subtasksByState.clear();
     }
 
     // получить эпик по идентификатору
@@ -130,13 +205,18 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic getEpic(long id) {
         Epic epic = hmEpics.get(id);
         historyManager.add(epic);
+        publish(TaskEvent.Type.VIEWED, epic);
         return epic;
     }
 
     // добавить новый эпик
     protected long createEpic(Epic newEpic, long id) {
+        remember(id);
         newEpic.setId(id);
         hmEpics.put(id, newEpic);
+        entities.put(id, newEpic);
+        epicsByState.put(newEpic);
+        publish(TaskEvent.Type.CREATED, newEpic);
         return id;
     }
 
@@ -157,7 +237,11 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             return -1;
         }
+        remember(epic.getId());
         hmEpics.put(epic.getId(), epic);
+        entities.put(epic.getId(), epic);
+        epicsByState.put(epic);
+        publish(TaskEvent.Type.UPDATED, epic);
         //checkEpicState(epic.getId()); // обновляем статус
         return epic.getId();
     }
@@ -165,16 +249,21 @@ public class InMemoryTaskManager implements TaskManager {
     // удалить эпик по идентификатору
     @Override
     public boolean removeEpic(long id) {
+        remember(id);
         Epic epic = hmEpics.remove(id);
         if (epic != null) {
+            entities.remove(id);
+            epicsByState.remove(id);
+            publish(TaskEvent.Type.REMOVED, epic);
             // при удалении эпика удаляем все его подзадачи
             for (Subtask subtask : epic.getSubtasks()) {
                 removeSubtask(subtask.getId());
                 historyManager.remove(subtask.getId());
-                prioritizedTasks.remove(subtask);
+                removePrioritized(subtask);
             }
         }
         historyManager.remove(id);
+        forget(id);
         return (epic != null);
     }
 
@@ -190,13 +279,22 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void removeAllSubtasks() {
         for (Subtask subtask : hmSubtasks.values()) {
+            remember(subtask.getId());
             historyManager.remove(subtask.getId());
-            prioritizedTasks.remove(subtask);
+            removePrioritized(subtask);
+            entities.remove(subtask.getId());
+            publish(TaskEvent.Type.REMOVED, subtask);
         }
         hmSubtasks.clear();
+        subtasksByState.clear();
         //hmEpics.clear();
         for (Epic epic : hmEpics.values()) {
+            boolean hadSubtasks = !epic.getSubtasks().isEmpty();
             epic.getSubtasks().clear();
+            epicsByState.put(epic);
+            if (hadSubtasks) {
+                publish(TaskEvent.Type.UPDATED, epic);
+            }
         }
     }
 
@@ -205,6 +303,7 @@ public class InMemoryTaskManager implements TaskManager {
     public Subtask getSubtask(long id) {
         Subtask subtask = hmSubtasks.get(id);
         historyManager.add(subtask);
+        publish(TaskEvent.Type.VIEWED, subtask);
         return subtask;
     }
 
@@ -212,13 +311,19 @@ public class InMemoryTaskManager implements TaskManager {
         if (!validateIntersections(newSubtask)) {
             throw new ManagerTimeException("Not valid time");
         }
+        remember(id);
         newSubtask.setId(id);
         hmSubtasks.put(id, newSubtask);
-        prioritizedTasks.add(newSubtask);
+        entities.put(id, newSubtask);
+        subtasksByState.put(newSubtask);
+        addPrioritized(newSubtask);
+        publish(TaskEvent.Type.CREATED, newSubtask);
         // добавляем новую подзадачу к эпику
         Epic epic = hmEpics.get(newSubtask.getEpic());
         if (epic != null) {
             epic.getSubtasks().add(newSubtask);
+            epicsByState.put(epic);
+            publish(TaskEvent.Type.UPDATED, epic);
         }
         return id;
     }
@@ -242,7 +347,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask == null) {
             return -1;
         }
-        if (!validateIntersections(subtask)) {
+        if (!validateUpdate(subtask)) {
             throw new ManagerTimeException("Not valid time");
         }
         long id = subtask.getId();
@@ -258,20 +363,34 @@ public class InMemoryTaskManager implements TaskManager {
         }
         // если у подзадачи поменялся эпик
         // то удаляем подзадачу у старого эпика и добавляем к новому
+        Epic newEpic = epic;
         if (oldSubtask.getEpic() != subtask.getEpic()) {
-            Epic newEpic = hmEpics.get(subtask.getEpic());
+            newEpic = hmEpics.get(subtask.getEpic());
+            // если не найден эпик то возвращаем ошибку
             if (newEpic == null) {
                 return -1;
             }
-            // если не найден эпик то возвращаем ошибку
-            epic.getSubtasks().remove(oldSubtask);
-            //checkEpicState(epic.getId()); // обновляем статус старого эпика
-            newEpic.getSubtasks().add(subtask);
-            epic = newEpic;
         }
-        prioritizedTasks.remove(oldSubtask);
+        remember(id);
+        // подзадача могла быть передана новым объектом, заменяем её в эпике
+        epic.getSubtasks().remove(oldSubtask);
+        //checkEpicState(epic.getId()); // обновляем статус старого эпика
+        newEpic.getSubtasks().add(subtask);
+        epicsByState.put(epic);
+        epicsByState.put(newEpic);
+        Epic oldEpic = epic;
+        epic = newEpic;
+        removePrioritized(oldSubtask);
         hmSubtasks.put(id, subtask);
-        prioritizedTasks.add(subtask);
+        entities.put(id, subtask);
+        subtasksByState.put(subtask);
+        addPrioritized(subtask);
+        publish(TaskEvent.Type.UPDATED, subtask);
+        // статус и время эпиков пересчитаны
+        if (oldEpic != newEpic) {
+            publish(TaskEvent.Type.UPDATED, oldEpic);
+        }
+        publish(TaskEvent.Type.UPDATED, newEpic);
         ///checkEpicState(epic.getId()); // обновляем статус эпика
         return subtask.getId();
     }
@@ -279,22 +398,29 @@ public class InMemoryTaskManager implements TaskManager {
     // удалить подзадачу по идентификатору
     @Override
     public boolean removeSubtask(long id) {
+        remember(id);
         Subtask subtask = hmSubtasks.get(id);
         historyManager.remove(id);
         // если подзадача не найдена то ошибка
         if (subtask == null) {
+            forget(id);
             return false;
         }
         Subtask task = hmSubtasks.remove(id);
-        prioritizedTasks.remove(subtask);
+        entities.remove(id);
+        subtasksByState.remove(id);
+        removePrioritized(subtask);
+        publish(TaskEvent.Type.REMOVED, subtask);
 
         Epic epic = hmEpics.get(subtask.getEpic());
         // если эпик не найден то ошибка
         if (epic != null) {
             epic.getSubtasks().remove(subtask);
+            epicsByState.put(epic);
+            publish(TaskEvent.Type.UPDATED, epic);
         }
         //checkEpicState(epic.getId()); // обновляем статус эпика
-
+        forget(id);
         return (task != null);
     }
 
@@ -318,9 +444,52 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    // per-user history
+
+    public void setHistoryService(HistoryService service) {
+        userHistory = service;
+    }
+
+    public HistoryService getHistoryService() {
+        if (userHistory == null) {
+            userHistory = Manager.getDefaultHistoryService();
+        }
+        return userHistory;
+    }
+
+    // просмотр задачи любого типа пользователем: попадает в его историю, а не в общую
+    public Task view(String user, long id) {
+        Task task = entities.get(id);
+        if (task != null) {
+            getHistoryService().add(user, task);
+            publish(TaskEvent.Type.VIEWED, task);
+        }
+        return task;
+    }
+
+    // история пользователя из текущих версий задач. Удаленные задачи убираются из истории
+    // здесь, а не при удалении: так удаление не обходит истории всех пользователей
+    public List<Task> getHistory(String user) {
+        HistoryService service = getHistoryService();
+        List<Task> result = new ArrayList<>();
+        for (Task task : service.getHistory(user)) {
+            Task current = entities.get(task.getId());
+            if (current != null) {
+                result.add(current);
+            } else {
+                // запись больше не занимает место в истории и в общем бюджете записей
+                service.remove(user, task.getId());
+            }
+        }
+        return result;
+    }
+
     // получить новый идентификатор
     private long getNextId() {
-        return counter++;
+        if (batchIds != null && batchIds.hasNext()) {
+            return batchIds.next();
+        }
+        return ids.next();
     }
 
     // рассчет статуса эпика
@@ -378,14 +547,226 @@ public class InMemoryTaskManager implements TaskManager {
     }
 */
 
-    // get Task by ID
-    protected Task getById(long id) {
-        Task task = hmTasks.get(id);
-        if (task != null) return task;
-        task = hmSubtasks.get(id);
-        if (task != null) return task;
-        task = hmEpics.get(id);
-        return task;
+    // batch
+
+    // добавить задачи пачкой: идентификаторы для всей пачки резервируются одним блоком
+    @Override
+    public long[] createAll(Collection<? extends Task> tasks) {
+        int count = 0;
+        for (Task task : tasks) {
+            if (task != null) {
+                count++;
+            }
+        }
+        if (count == 0 || batchIds != null) {
+            return TaskManager.super.createAll(tasks);
+        }
+        batchIds = ids.reserve(count);
+        try {
+            return TaskManager.super.createAll(tasks);
+        } finally {
+            batchIds = null;
+        }
+    }
+
+    // transactions
+
+    // выполнить изменения атомарно: если body бросит исключение, все изменения
+    // (и история просмотров) откатываются, а исключение пробрасывается дальше.
+    // Объект, который меняют на месте перед update, запоминается уже измененным -
+    // для отката в update лучше передавать новый объект
+    @Override
+    public void inTransaction(Runnable body) {
+        if (undo != null) {
+            // вложенная транзакция - часть внешней
+            body.run();
+            return;
+        }
+        // снимок внутри транзакции - состояние на ее начало, если снимки уже собирались
+        if (snapshot != null) {
+            snapshot();
+        }
+        undo = new UndoLog(historyManager.getHistory());
+        pendingEvents = new ArrayList<>();
+        boolean committed = false;
+        try {
+            body.run();
+            committed = true;
+        } finally {
+            UndoLog log = undo;
+            List<TaskEvent> transactionEvents = pendingEvents;
+            undo = null;
+            pendingEvents = null;
+            if (!committed) {
+                rollback(log);
+            } else if (events != null) {
+                transactionEvents.forEach(events::submit);
+            }
+        }
+    }
+
+    // отметить изменение задачи для снимка и запомнить ее исходную версию
+    // до первого изменения в транзакции
+    private void remember(long id) {
+        if (snapshot != null) {
+            changed.put(id, Boolean.TRUE);
+        }
+        if (undo != null) {
+            undo.remember(id, entities.get(id));
+        }
+    }
+
+    // задача удалена (или ее не было): если ее нет и в снимке, обновлять в нем нечего
+    private void forget(long id) {
+        if (snapshot != null && snapshot.findById(id) == null) {
+            changed.remove(id);
+        }
+    }
+
+    private void rollback(UndoLog log) {
+        log.rollback(entities::get, this::unlink, this::link);
+        log.restoreHistory(historyManager);
+    }
+
+    // убрать задачу из всех индексов без проверок
+    private void unlink(Task task) {
+        long id = task.getId();
+        entities.remove(id);
+        if (task instanceof Epic) {
+            hmEpics.remove(id);
+            epicsByState.remove(id);
+            return;
+        }
+        removePrioritized(task);
+        if (task instanceof Subtask) {
+            hmSubtasks.remove(id);
+            subtasksByState.remove(id);
+            Epic epic = hmEpics.get(((Subtask) task).getEpic());
+            if (epic != null) {
+                epic.getSubtasks().remove(task);
+                epicsByState.put(epic);
+            }
+        } else {
+            hmTasks.remove(id);
+            tasksByState.remove(id);
+        }
+    }
+
+    // вернуть задачу во все индексы без проверок
+    private void link(Task task) {
+        long id = task.getId();
+        entities.put(id, task);
+        if (task instanceof Epic) {
+            hmEpics.put(id, (Epic) task);
+            epicsByState.put((Epic) task);
+            return;
+        }
+        addPrioritized(task);
+        if (task instanceof Subtask) {
+            hmSubtasks.put(id, (Subtask) task);
+            subtasksByState.put((Subtask) task);
+            Epic epic = hmEpics.get(((Subtask) task).getEpic());
+            if (epic != null) {
+                // подзадача могла остаться в наборе эпика, пересчитываем ее вклад
+                epic.getSubtasks().remove(task);
+                epic.getSubtasks().add((Subtask) task);
+                epicsByState.put(epic);
+            }
+        } else {
+            hmTasks.put(id, task);
+            tasksByState.put(task);
+        }
+    }
+
+    // snapshots
+
+    // снимок собирается из предыдущего: заменяются только задачи, измененные после него,
+    // O(k log n). Первый снимок собирается целиком, до него изменения не запоминаются.
+    // Внутри транзакции возвращается снимок до ее начала; если снимков еще не было -
+    // снимок текущего состояния, он не сохраняется
+    @Override
+    public TaskSnapshot snapshot() {
+        if (snapshot == null) {
+            TaskSnapshot result = TaskSnapshot.of(this);
+            if (undo == null) {
+                snapshot = result;
+            }
+            return result;
+        }
+        if (undo != null || changed.isEmpty()) {
+            return snapshot;
+        }
+        TaskSnapshot result = snapshot;
+        for (long id : changed.keys()) {
+            TaskView old = result.findById(id);
+            Task current = entities.get(id);
+            result = (current != null) ? result.with(TaskView.of(current)) : result.without(id);
+            // статус и время эпика меняются вместе с его подзадачами
+            if (old != null && old.getType() == TaskType.SUBTASK) {
+                result = withEpic(result, old.getEpic());
+            }
+            if (current instanceof Subtask) {
+                result = withEpic(result, ((Subtask) current).getEpic());
+            }
+        }
+        changed.clear();
+        snapshot = result;
+        return result;
+    }
+
+    // сколько id ждут следующего снимка
+    int changedCount() {
+        return changed.size();
+    }
+
+    private TaskSnapshot withEpic(TaskSnapshot snapshot, long epicId) {
+        Epic epic = hmEpics.get(epicId);
+        return (epic != null) ? snapshot.with(TaskView.of(epic)) : snapshot;
+    }
+
+    // events
+
+    // поток событий изменений и просмотров задач. Подписчики получают события в фоновом
+    // executor, у каждого свой ограниченный буфер: если буфер полон, изменение ждет,
+    // пока подписчик не заберет события (backpressure)
+    public Flow.Publisher<TaskEvent> getEvents() {
+        if (events == null) {
+            enableEvents(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+        }
+        return events::subscribe;
+    }
+
+    // включить поток событий со своим executor и размером буфера подписчика
+    public void enableEvents(Executor executor, int maxBufferCapacity) {
+        if (events != null) {
+            events.close();
+        }
+        events = new SubmissionPublisher<>(executor, maxBufferCapacity);
+    }
+
+    // завершить поток событий, подписчики получат onComplete
+    public void closeEvents() {
+        if (events != null) {
+            events.close();
+            events = null;
+        }
+    }
+
+    private void publish(TaskEvent.Type type, Task task) {
+        if (events == null || task == null) {
+            return;
+        }
+        long version = ++eventVersion;
+        if (pendingEvents != null) {
+            pendingEvents.add(new TaskEvent(type, version, TaskView.of(task)));
+        } else if (events.hasSubscribers()) {
+            events.submit(new TaskEvent(type, version, TaskView.of(task)));
+        }
+    }
+
+    @Override
+    public Task findById(long id) {
+        return entities.get(id);
     }
 
     protected HistoryManager getHistoryManager() {
@@ -397,19 +778,115 @@ public class InMemoryTaskManager implements TaskManager {
         return List.copyOf(prioritizedTasks);
     }
 
+    // окно расписания по индексу интервалов
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        intervals.forEachOverlapping((from != null) ? from : LocalDateTime.MIN,
+                (to != null) ? to : LocalDateTime.MAX, id -> result.add(entities.get(id)));
+        return result;
+    }
+
+    // выборки по статусу из индексов статусов
+
+    @Override
+    public List<Task> getTasksByState(TaskState state) {
+        return tasksByState.get(state);
+    }
+
+    @Override
+    public List<Epic> getEpicsByState(TaskState state) {
+        return epicsByState.get(state);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByState(TaskState state) {
+        return subtasksByState.get(state);
+    }
+
+    // постраничные выборки идут прямо по хранилищам, без копии всей коллекции
+
+    @Override
+    public List<Task> getTasks(int offset, int limit) {
+        return Paging.page(hmTasks.values(), offset, limit);
+    }
+
+    @Override
+    public List<Epic> getEpics(int offset, int limit) {
+        return Paging.page(hmEpics.values(), offset, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int offset, int limit) {
+        return Paging.page(hmSubtasks.values(), offset, limit);
+    }
+
+    // страницы по ключу ищут начало в снимке, упорядоченном по id, если снимок уже собран.
+    // Без снимка и внутри транзакции (снимок не обновляется) обходится хранилище
+
+    @Override
+    public List<Task> getTasksAfter(long afterId, int limit) {
+        if (undo != null || snapshot == null) {
+            return Paging.afterId(hmTasks.values(), afterId, limit);
+        }
+        return Paging.afterId(snapshot().tasksAfter(afterId), hmTasks::get, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsAfter(long afterId, int limit) {
+        if (undo != null || snapshot == null) {
+            return Paging.afterId(hmEpics.values(), afterId, limit);
+        }
+        return Paging.afterId(snapshot().epicsAfter(afterId), hmEpics::get, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksAfter(long afterId, int limit) {
+        if (undo != null || snapshot == null) {
+            return Paging.afterId(hmSubtasks.values(), afterId, limit);
+        }
+        return Paging.afterId(snapshot().subtasksAfter(afterId), hmSubtasks::get, limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(int offset, int limit) {
+        return Paging.page(prioritizedTasks, offset, limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(Task after, int limit) {
+        return Paging.take((after == null) ? prioritizedTasks.iterator()
+                : prioritizedTasks.tailSet(after, false).iterator(), limit);
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return historyManager.getHistory(offset, limit);
+    }
+
     @Override
     public boolean validateIntersections(Task task) {
-        if (task == null || task.getStartTime() == null || prioritizedTasks.size() == 0) return true;
+        if (task == null || task.getStartTime() == null) return true;
 
-        return !prioritizedTasks.stream().filter(t -> {
-            if (t.getStartTime() == null) {
-                return false;
-            }
-            LocalDateTime start = task.getStartTime();
-            LocalDateTime end = task.getEndTime();
-            if (!start.isAfter(t.getEndTime()) && end.isAfter(t.getStartTime())) return true;
-            return false;
-        }).findFirst().isPresent();
+        return !intervals.overlaps(task);
+    }
+
+    // проверка пересечений при обновлении: старая версия задачи не учитывается
+    private boolean validateUpdate(Task task) {
+        if (task.getStartTime() == null) return true;
+
+        return !intervals.overlaps(task, task.getId());
+    }
+
+    private void addPrioritized(Task task) {
+        prioritizedTasks.add(task);
+        intervals.add(task);
+    }
+
+    private void removePrioritized(Task task) {
+        if (task == null) return;
+        prioritizedTasks.remove(task);
+        intervals.remove(task.getId());
     }
 
 }
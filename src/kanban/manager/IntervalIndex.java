@@ -0,0 +1,217 @@
+package kanban.manager;
+
+import kanban.model.Task;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.function.LongConsumer;
+
+// индекс интервалов [startTime, endTime] задач для проверки пересечений за O(log n).
+// Декартово дерево (treap) по (startTime, id), в каждом узле хранится максимальный endTime поддерева.
+// Интервал запоминается при добавлении, поэтому задачу можно удалить по id,
+// даже если у объекта уже поменяли время
+public class IntervalIndex {
+    private final LongHashMap<Node> byId = new LongHashMap<>();
+    private final Random random = new Random();
+    private Node root;
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void clear() {
+        byId.clear();
+        root = null;
+    }
+
+    // добавить интервал задачи (старый интервал с тем же id заменяется), задачи без времени не индексируются
+    public void add(Task task) {
+        remove(task.getId());
+        if (task.getStartTime() == null) {
+            return;
+        }
+        Node node = new Node(task.getId(), task.getStartTime(), task.getEndTime(), random.nextInt());
+        byId.put(node.id, node);
+        root = insert(root, node);
+    }
+
+    // удалить интервал задачи
+    public boolean remove(long id) {
+        Node node = byId.remove(id);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node);
+        return true;
+    }
+
+    // пересекается ли задача с каким-нибудь интервалом
+    public boolean overlaps(Task task) {
+        if (task.getStartTime() == null) {
+            return false;
+        }
+        return overlaps(task.getStartTime(), task.getEndTime());
+    }
+
+    // есть ли интервал t, для которого start <= t.end и end > t.start
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        Node node = root;
+        while (node != null) {
+            if (!start.isAfter(node.end) && end.isAfter(node.start)) {
+                return true;
+            }
+            // если в левом поддереве есть интервал с end >= start, но он не пересекается,
+            // то он начинается не раньше end, а правое поддерево - еще позже
+            if (node.left != null && !node.left.maxEnd.isBefore(start)) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    // id задач, попадающих в окно [from, to): начало раньше to и конец позже from
+    // (или начало не раньше from для задач нулевой длительности), в порядке startTime.
+    // Обходятся только поддеревья, где могут быть такие задачи: O(log n + k)
+    public void forEachOverlapping(LocalDateTime from, LocalDateTime to, LongConsumer action) {
+        forEachOverlapping(root, from, to, action);
+    }
+
+    private static void forEachOverlapping(Node node, LocalDateTime from, LocalDateTime to, LongConsumer action) {
+        // все интервалы поддерева закончились до from
+        if (node == null || node.maxEnd.isBefore(from)) {
+            return;
+        }
+        forEachOverlapping(node.left, from, to, action);
+        if (!node.start.isBefore(to)) {
+            // правое поддерево начинается еще позже
+            return;
+        }
+        if (node.end.isAfter(from) || !node.start.isBefore(from)) {
+            action.accept(node.id);
+        }
+        forEachOverlapping(node.right, from, to, action);
+    }
+
+    // пересекается ли задача с интервалами, кроме интервала exceptId (старая версия задачи при обновлении)
+    public boolean overlaps(Task task, long exceptId) {
+        Node node = byId.get(exceptId);
+        if (node == null) {
+            return overlaps(task);
+        }
+        root = delete(root, node);
+        node.left = null;
+        node.right = null;
+        node.maxEnd = node.end;
+        try {
+            return overlaps(task);
+        } finally {
+            root = insert(root, node);
+        }
+    }
+
+    private static Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.compareTo(root) < 0) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        root.update();
+        return root;
+    }
+
+    private static Node delete(Node root, Node node) {
+        if (root == null) {
+            return null;
+        }
+        if (root == node) {
+            return merge(root.left, root.right);
+        }
+        if (node.compareTo(root) < 0) {
+            root.left = delete(root.left, node);
+        } else {
+            root.right = delete(root.right, node);
+        }
+        root.update();
+        return root;
+    }
+
+    // объединить два поддерева, все ключи left меньше ключей right
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        return right;
+    }
+
+    private static class Node implements Comparable<Node> {
+        private final long id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int priority;
+        // максимальный end в поддереве
+        private LocalDateTime maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(long id, LocalDateTime start, LocalDateTime end, int priority) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd.isAfter(maxEnd)) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd.isAfter(maxEnd)) {
+                maxEnd = right.maxEnd;
+            }
+        }
+
+        @Override
+        public int compareTo(Node node) {
+            int result = start.compareTo(node.start);
+            return (result != 0) ? result : Long.compare(id, node.id);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package kanban.manager;
+
+import kanban.exception.ManagerLoadException;
+import kanban.exception.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// журнал изменений: каждая операция дописывается в конец файла одной строкой.
+// Журнал разбит на сегменты "<base>.<gen>": после записи снимка старые сегменты удаляются.
+// В режиме group commit записи копятся в памяти и пишутся пачкой фоновым потоком
+public class Journal implements AutoCloseable {
+
+    // тип операции в журнале, записи между BEGIN и COMMIT применяются только вместе
+    public enum Op {
+        CREATE, UPDATE, REMOVE, CLEAR, VIEW, BEGIN, COMMIT
+    }
+
+    private final File base;
+    // номер текущего сегмента
+    private long generation;
+    // размер текущего сегмента
+    private long records;
+    private long bytes;
+
+    // group commit: накопленные, но еще не записанные строки
+    private StringBuilder pending = new StringBuilder();
+    private int pendingRecords;
+    private int batchSize;
+    private boolean flushRequested;
+    private ScheduledExecutorService flusher;
+    // порядок записи пачек на диск
+    private final Object writeLock = new Object();
+    // ошибка фоновой записи, сообщается следующему append, flush или close
+    private volatile ManagerSaveException failure;
+    // сегмент, на котором replay нашел повреждение, и все сегменты после него
+    private List<File> damagedSegments = List.of();
+
+    public Journal(File base) {
+        this.base = base;
+        List<Long> generations = findGenerations();
+        generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1);
+        bytes = getFile().length();
+    }
+
+    // файл текущего сегмента
+    public File getFile() {
+        return segment(generation);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    // количество записей в текущем сегменте
+    public long getRecords() {
+        return records;
+    }
+
+    // размер текущего сегмента в байтах
+    public long getBytes() {
+        return bytes;
+    }
+
+    // включить group commit: пачка пишется раз в intervalMillis или по накоплении batchSize записей
+    public synchronized void enableGroupCommit(long intervalMillis, int batchSize) {
+        if (flusher != null) {
+            this.batchSize = batchSize;
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kanban-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+        enableGroupCommit(batchSize, executor);
+    }
+
+    // group commit с заданным исполнителем фоновой записи, пачка пишется по накоплении batchSize записей
+    synchronized void enableGroupCommit(int batchSize, ScheduledExecutorService executor) {
+        this.batchSize = batchSize;
+        this.flusher = executor;
+    }
+
+    // дописать запись "op,payload" в конец журнала
+    public void append(Op op, String payload) {
+        write(RecordChecksum.sign(op.name() + "," + payload) + "\n", 1);
+    }
+
+    // дописать готовые записи "op,payload" одной операцией записи
+    public void appendRecords(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String record : records) {
+            lines.append(RecordChecksum.sign(record)).append('\n');
+        }
+        write(lines.toString(), records.size());
+    }
+
+    // дописать записи "op,payload" транзакцией: BEGIN, записи, COMMIT одной операцией записи
+    public void appendTransaction(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        lines.append(RecordChecksum.sign(Op.BEGIN.name())).append('\n');
+        for (String record : records) {
+            lines.append(RecordChecksum.sign(record)).append('\n');
+        }
+        lines.append(RecordChecksum.sign(Op.COMMIT.name())).append('\n');
+        write(lines.toString(), records.size() + 2);
+    }
+
+    // запись журнала для appendTransaction
+    public static String record(Op op, String payload) {
+        return op.name() + "," + payload;
+    }
+
+    // запись всегда сначала ставится в очередь: при ошибке записи она остается там
+    // до следующей попытки, а ошибка сообщается вызывающему
+    private void write(String line, int count) {
+        ScheduledExecutorService executor;
+        boolean schedule = false;
+        synchronized (this) {
+            records += count;
+            bytes += line.getBytes(StandardCharsets.UTF_8).length;
+            pending.append(line);
+            pendingRecords += count;
+            executor = flusher;
+            if (executor != null && batchSize > 0 && pendingRecords >= batchSize && !flushRequested) {
+                flushRequested = true;
+                schedule = true;
+            }
+        }
+        if (executor == null) {
+            // без group commit каждая запись сразу пишется и сбрасывается на диск
+            drain(false);
+            return;
+        }
+        if (schedule) {
+            executor.execute(this::flushQuietly);
+        }
+        checkFailure();
+    }
+
+    // записать накопленные записи на диск и дождаться fsync
+    public void flush() {
+        checkFailure();
+        drain(false);
+    }
+
+    // фоновая запись: ошибка запоминается, записи остаются в очереди до следующей попытки
+    private void flushQuietly() {
+        try {
+            drain(false);
+        } catch (ManagerSaveException e) {
+            failure = e;
+        }
+    }
+
+    private void checkFailure() {
+        ManagerSaveException e = failure;
+        if (e != null) {
+            failure = null;
+            throw new ManagerSaveException("Error on background write journal", e);
+        }
+    }
+
+    // забрать накопленные записи (и при rotate перейти на новый сегмент), затем записать их.
+    // Если запись не удалась, записи возвращаются в начало очереди
+    private long drain(boolean rotate) {
+        synchronized (writeLock) {
+            File file;
+            String data;
+            int count;
+            long closed;
+            synchronized (this) {
+                file = getFile();
+                data = pending.toString();
+                count = pendingRecords;
+                pending = new StringBuilder();
+                pendingRecords = 0;
+                flushRequested = false;
+                closed = generation;
+                if (rotate) {
+                    generation++;
+                    records = 0;
+                    bytes = 0;
+                }
+            }
+            if (!data.isEmpty()) {
+                try {
+                    write(file, data);
+                } catch (ManagerSaveException e) {
+                    synchronized (this) {
+                        pending.insert(0, data);
+                        pendingRecords += count;
+                    }
+                    throw e;
+                }
+            }
+            return closed;
+        }
+    }
+
+    // дописать данные в файл и сбросить их на диск
+    private void write(File file, String data) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error on write journal", e);
+        }
+    }
+
+    // начать новый сегмент, возвращает номер закрытого сегмента
+    public long rotate() {
+        return drain(true);
+    }
+
+    // записать накопленное и остановить фоновый поток
+    @Override
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // накопленное пишется даже после ошибки фоновой записи, ошибка сообщается после
+        drain(false);
+        checkFailure();
+    }
+
+    // продолжить журнал после сегмента, уже вошедшего в снимок
+    public synchronized void startAfter(long lastGeneration) {
+        if (generation <= lastGeneration) {
+            generation = lastGeneration + 1;
+            records = 0;
+            bytes = getFile().length();
+        }
+    }
+
+    // сегменты, не прочитанные последним replay из-за повреждения: поврежденный и следующие
+    public List<File> getDamagedSegments() {
+        return damagedSegments;
+    }
+
+    // прочитать сегменты с номером больше afterGeneration и передать каждую запись в handler.
+    // Возвращает false, если чтение остановлено на поврежденной записи
+    public boolean replay(long afterGeneration, BiConsumer<Op, String> handler) {
+        for (Long gen : findGenerations()) {
+            if (gen <= afterGeneration) {
+                continue;
+            }
+            long count = replay(segment(gen), handler);
+            if (count < 0) {
+                List<File> damaged = new ArrayList<>();
+                for (Long next : findGenerations()) {
+                    if (next >= gen) {
+                        damaged.add(segment(next));
+                    }
+                }
+                damagedSegments = damaged;
+                return false;
+            }
+            if (gen == generation) {
+                records = count;
+            }
+        }
+        return true;
+    }
+
+    // количество прочитанных записей, -1 - найдена поврежденная запись или незавершенная транзакция
+    private long replay(File file, BiConsumer<Op, String> handler) {
+        long count = 0;
+        // записи открытой транзакции, null - вне транзакции
+        List<String> transaction = null;
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readRecord()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                // запись оборвана при сбое или испорчена
+                String record = RecordChecksum.verify(line);
+                if (record == null) {
+                    return -1;
+                }
+                count++;
+                if (record.equals(Op.BEGIN.name())) {
+                    transaction = new ArrayList<>();
+                } else if (record.equals(Op.COMMIT.name())) {
+                    if (transaction != null) {
+                        transaction.forEach(r -> apply(r, handler));
+                    }
+                    transaction = null;
+                } else if (transaction != null) {
+                    transaction.add(record);
+                } else {
+                    apply(record, handler);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ManagerLoadException("Error on load journal", e);
+        }
+        // транзакция без COMMIT оборвана при сбое, ее записи не применяются
+        return (transaction == null) ? count : -1;
+    }
+
+    private static void apply(String record, BiConsumer<Op, String> handler) {
+        int pos = record.indexOf(',');
+        Op op = Op.valueOf((pos < 0) ? record : record.substring(0, pos));
+        handler.accept(op, (pos < 0) ? "" : record.substring(pos + 1));
+    }
+
+    // удалить сегменты, которые уже вошли в снимок
+    public void deleteUpTo(long lastGeneration) {
+        for (Long gen : findGenerations()) {
+            if (gen <= lastGeneration) {
+                segment(gen).delete();
+            }
+        }
+    }
+
+    private File segment(long gen) {
+        return new File(base.getPath() + "." + gen);
+    }
+
+    // номера существующих сегментов по возрастанию
+    private List<Long> findGenerations() {
+        List<Long> result = new ArrayList<>();
+        File dir = base.getAbsoluteFile().getParentFile();
+        String prefix = base.getName() + ".";
+        String[] names = (dir != null) ? dir.list() : null;
+        if (names == null) {
+            return result;
+        }
+        for (String name : names) {
+            if (!name.startsWith(prefix)) {
+                continue;
+            }
+            try {
+                result.add(Long.parseLong(name.substring(prefix.length())));
+            } catch (NumberFormatException e) {
+                // не сегмент журнала
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
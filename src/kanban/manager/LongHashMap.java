@@ -0,0 +1,236 @@
+package kanban.manager;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// хеш-таблица с ключами long без упаковки в Long: открытая адресация, линейное пробирование.
+// Ключи и значения лежат в двух массивах, узлы не создаются.
+// Значения null не допускаются, пустая ячейка - values[i] == null.
+// Хеш перемешивается так же, как в HashMap, поэтому порядок обхода для подряд идущих id тот же.
+// Таблица уменьшается, когда заполнена меньше чем на 1/8, так что обход пропорционален size()
+public class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    // максимальная заполненность таблицы 3/4
+    private static final int LOAD_NUMERATOR = 3;
+    private static final int LOAD_DENOMINATOR = 4;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    public LongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : (V) values[i];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    // добавить или заменить значение, возвращает старое значение
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            allocateAndRehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    // удалить значение по ключу, возвращает удаленное значение
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V old = (V) values[i];
+        deleteSlot(i);
+        shrinkIfSparse();
+        return old;
+    }
+
+    // удалить, только если по ключу лежит именно это значение
+    public boolean remove(long key, V value) {
+        int i = indexOf(key);
+        if (i < 0 || !Objects.equals(values[i], value)) {
+            return false;
+        }
+        deleteSlot(i);
+        shrinkIfSparse();
+        return true;
+    }
+
+    public void clear() {
+        if (keys.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    // все ключи в порядке обхода таблицы
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    // значения таблицы (без копирования), изменять таблицу во время обхода нельзя
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // позиция ключа в таблице, -1 - ключ не найден
+    private int indexOf(long key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // удаление без "надгробий": следующие записи цепочки сдвигаются на освободившееся место
+    private void deleteSlot(int hole) {
+        values[hole] = null;
+        size--;
+        int i = (hole + 1) & mask;
+        while (values[i] != null) {
+            int home = slot(keys[i]);
+            // запись можно перенести в hole, если hole лежит между ее домашней ячейкой и i
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                values[i] = null;
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void shrinkIfSparse() {
+        if (keys.length > MIN_CAPACITY && size < keys.length / 8) {
+            allocateAndRehash(Math.max(MIN_CAPACITY, capacityFor(size)));
+        }
+    }
+
+    private int slot(long key) {
+        int h = Long.hashCode(key);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) ((long) capacity * LOAD_NUMERATOR / LOAD_DENOMINATOR);
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) {
+                continue;
+            }
+            int i = slot(oldKeys[j]);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    // степень двойки, при которой expectedSize элементов не превышают порог заполненности
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.max(expectedSize, 1) * LOAD_DENOMINATOR / LOAD_NUMERATOR + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            int i = from;
+            while (i < values.length && values[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next >= values.length) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) values[next];
+            next = advance(next + 1);
+            return value;
+        }
+    }
+}
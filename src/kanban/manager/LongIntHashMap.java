@@ -0,0 +1,124 @@
+package kanban.manager;
+
+// хеш-таблица long -> int без упаковки: открытая адресация, линейное пробирование,
+// как в LongHashMap. Значения не отрицательные, в таблице хранится value + 1,
+// пустая ячейка - 0. Вставка и удаление без выделения памяти, пока таблица не растет
+public class LongIntHashMap {
+    // нет значения
+    public static final int NONE = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // значение по ключу, NONE - ключ не найден
+    public int get(long key) {
+        int i = indexOf(key);
+        return (i < 0) ? NONE : values[i] - 1;
+    }
+
+    // добавить или заменить значение, возвращает старое значение или NONE
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        int i = slot(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                int old = values[i] - 1;
+                values[i] = value + 1;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value + 1;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return NONE;
+    }
+
+    // удалить значение по ключу, возвращает удаленное значение или NONE
+    public int remove(long key) {
+        int hole = indexOf(key);
+        if (hole < 0) {
+            return NONE;
+        }
+        int old = values[hole] - 1;
+        values[hole] = 0;
+        size--;
+        // удаление без "надгробий", как в LongHashMap.deleteSlot
+        int i = (hole + 1) & mask;
+        while (values[i] != 0) {
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                values[i] = 0;
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        return old;
+    }
+
+    private int indexOf(long key) {
+        int i = slot(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        int h = Long.hashCode(key);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = capacity * 3 / 4;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == 0) {
+                continue;
+            }
+            int i = slot(oldKeys[j]);
+            while (values[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package kanban.manager;
 
+import java.time.Duration;
+
 // управляет созданием TaskManager и HistoryManager
 public class Manager {
 
@@ -7,7 +9,21 @@ public class Manager {
         return new InMemoryTaskManager();
     }
 
+    // размер истории по умолчанию
+    public static final int DEFAULT_HISTORY_CAPACITY = 10;
+
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return getDefaultHistory(DEFAULT_HISTORY_CAPACITY);
+    }
+
+    // история, хранящая не больше capacity последних просмотров
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+
+    // истории по пользователям: по DEFAULT_HISTORY_CAPACITY просмотров, простой 30 минут,
+    // примерно 16 МБ на всех
+    public static HistoryService getDefaultHistoryService() {
+        return new HistoryService(DEFAULT_HISTORY_CAPACITY, Duration.ofMinutes(30), 16L * 1024 * 1024);
     }
 }
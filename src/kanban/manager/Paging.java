@@ -0,0 +1,88 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import kanban.model.TaskView;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongFunction;
+
+// выборка страниц из коллекций без копирования их целиком
+public final class Paging {
+
+    private Paging() {
+    }
+
+    // страница [offset, offset + limit) в порядке обхода source
+    public static <T> List<T> page(Iterable<? extends T> source, int offset, int limit) {
+        check(offset, limit);
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        Iterator<? extends T> iterator = source.iterator();
+        for (int i = 0; i < offset && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    // первые limit элементов, не считая уже пропущенных в iterator
+    public static <T> List<T> take(Iterator<? extends T> iterator, int limit) {
+        check(0, limit);
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    // limit задач по упорядоченному по id обходу: views - задачи с id больше afterId
+    // по возрастанию id (например, из TaskSnapshot), lookup - текущая задача по id,
+    // null - задача уже удалена и пропускается. Стоимость - поиск начала и сама страница
+    public static <T> List<T> afterId(Iterator<TaskView> views, LongFunction<? extends T> lookup, int limit) {
+        check(0, limit);
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit && views.hasNext()) {
+            T task = lookup.apply(views.next().getId());
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // limit задач с наименьшими id больше afterId, по возрастанию id.
+    // Для хранилищ без порядка по id: обходится все, но в памяти держится только страница
+    public static <T extends Task> List<T> afterId(Iterable<? extends T> source, long afterId, int limit) {
+        check(0, limit);
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        // на вершине - наибольший id страницы, его вытесняет задача с меньшим id
+        PriorityQueue<T> page = new PriorityQueue<>(Comparator.comparingLong(Task::getId).reversed());
+        for (T task : source) {
+            if (task.getId() <= afterId) {
+                continue;
+            }
+            if (page.size() < limit) {
+                page.add(task);
+            } else if (task.getId() < page.peek().getId()) {
+                page.poll();
+                page.add(task);
+            }
+        }
+        List<T> result = new ArrayList<>(page);
+        result.sort(Comparator.comparingLong(Task::getId));
+        return result;
+    }
+
+    private static void check(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+    }
+}
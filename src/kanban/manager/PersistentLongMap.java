@@ -0,0 +1,231 @@
+package kanban.manager;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// неизменяемая карта с ключами long: декартово дерево (treap), упорядоченное по ключу.
+// plus/minus не меняют карту, а возвращают новую: копируется только путь от корня
+// до измененного узла (O(log n)), остальные узлы общие со старой версией.
+// Приоритет узла - перемешанный ключ, поэтому форма дерева зависит только от набора ключей.
+// Старые версии можно читать из любых потоков без блокировок
+public final class PersistentLongMap<V> implements Iterable<V> {
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null);
+
+    private final Node<V> root;
+
+    private PersistentLongMap(Node<V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public V get(long key) {
+        Node<V> node = root;
+        while (node != null) {
+            if (key < node.key) {
+                node = node.left;
+            } else if (key > node.key) {
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // карта с добавленным или замененным значением
+    public PersistentLongMap<V> plus(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        Node<V> result = insert(root, key, value);
+        return (result == root) ? this : new PersistentLongMap<>(result);
+    }
+
+    // карта без ключа
+    public PersistentLongMap<V> minus(long key) {
+        Node<V> result = delete(root, key);
+        return (result == root) ? this : wrap(result);
+    }
+
+    // значения в порядке возрастания ключей, только для чтения
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return PersistentLongMap.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return PersistentLongMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        ArrayDeque<Node<V>> stack = new ArrayDeque<>();
+        for (Node<V> node = root; node != null; node = node.left) {
+            stack.push(node);
+        }
+        return new ValueIterator<>(stack);
+    }
+
+    // значения с ключами больше key в порядке возрастания ключей, начало ищется за O(log n)
+    public Iterator<V> iteratorAfter(long key) {
+        // на стеке - узлы с ключом больше key, у которых еще не пройдено правое поддерево
+        ArrayDeque<Node<V>> stack = new ArrayDeque<>();
+        Node<V> node = root;
+        while (node != null) {
+            if (node.key > key) {
+                stack.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return new ValueIterator<>(stack);
+    }
+
+    private PersistentLongMap<V> wrap(Node<V> node) {
+        return (node == null) ? empty() : new PersistentLongMap<>(node);
+    }
+
+    private static int size(Node<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    private static <V> Node<V> insert(Node<V> node, long key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        if (key < node.key) {
+            Node<V> left = insert(node.left, key, value);
+            if (left == node.left) {
+                return node;
+            }
+            // новый узел поднимается вверх, пока его приоритет больше (поворот вправо)
+            if (left.priority > node.priority) {
+                return new Node<>(left.key, left.value, left.left, node.with(left.right, node.right));
+            }
+            return node.with(left, node.right);
+        }
+        if (key > node.key) {
+            Node<V> right = insert(node.right, key, value);
+            if (right == node.right) {
+                return node;
+            }
+            if (right.priority > node.priority) {
+                return new Node<>(right.key, right.value, node.with(node.left, right.left), right.right);
+            }
+            return node.with(node.left, right);
+        }
+        return (node.value == value) ? node : new Node<>(key, value, node.left, node.right);
+    }
+
+    private static <V> Node<V> delete(Node<V> node, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.key) {
+            Node<V> left = delete(node.left, key);
+            return (left == node.left) ? node : node.with(left, node.right);
+        }
+        if (key > node.key) {
+            Node<V> right = delete(node.right, key);
+            return (right == node.right) ? node : node.with(node.left, right);
+        }
+        return merge(node.left, node.right);
+    }
+
+    // слияние деревьев, все ключи left меньше ключей right
+    private static <V> Node<V> merge(Node<V> left, Node<V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            return left.with(left.left, merge(left.right, right));
+        }
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    // обход по возрастанию ключей: вершина стека - следующий узел
+    private static final class ValueIterator<V> implements Iterator<V> {
+        private final ArrayDeque<Node<V>> stack;
+
+        ValueIterator(ArrayDeque<Node<V>> stack) {
+            this.stack = stack;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<V> node = stack.pop();
+            for (Node<V> child = node.right; child != null; child = child.left) {
+                stack.push(child);
+            }
+            return node.value;
+        }
+    }
+
+    private static final class Node<V> {
+        private final long key;
+        private final V value;
+        private final int priority;
+        private final Node<V> left;
+        private final Node<V> right;
+        private final int size;
+
+        Node(long key, V value, Node<V> left, Node<V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority(key);
+            this.left = left;
+            this.right = right;
+            this.size = 1 + PersistentLongMap.size(left) + PersistentLongMap.size(right);
+        }
+
+        // копия узла с другими поддеревьями
+        Node<V> with(Node<V> left, Node<V> right) {
+            return new Node<>(key, value, left, right);
+        }
+
+        // финальное перемешивание MurmurHash3: подряд идущие id дают случайные приоритеты
+        private static int priority(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return (int) key;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package kanban.manager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// контрольная сумма записи: к строке дописывается ",#" и CRC32 в виде 8 hex-символов
+public final class RecordChecksum {
+    private static final int SUFFIX_LENGTH = 10;
+
+    private RecordChecksum() {
+    }
+
+    // дописать контрольную сумму к записи
+    public static String sign(String record) {
+        return record + ",#" + String.format("%08x", crc(record));
+    }
+
+    // есть ли у строки контрольная сумма
+    public static boolean isSigned(String line) {
+        int len = line.length();
+        if (len < SUFFIX_LENGTH || line.charAt(len - SUFFIX_LENGTH) != ','
+                || line.charAt(len - SUFFIX_LENGTH + 1) != '#') {
+            return false;
+        }
+        for (int i = len - SUFFIX_LENGTH + 2; i < len; i++) {
+            if (Character.digit(line.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // запись без контрольной суммы, null - сумма отсутствует или не совпала
+    public static String verify(String line) {
+        if (!isSigned(line)) {
+            return null;
+        }
+        String record = line.substring(0, line.length() - SUFFIX_LENGTH);
+        long expected = Long.parseLong(line.substring(line.length() - SUFFIX_LENGTH + 2), 16);
+        return (crc(record) == expected) ? record : null;
+    }
+
+    private static long crc(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,46 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import kanban.model.TaskState;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+// задачи, разложенные по статусам: выборка по статусу пропорциональна размеру результата.
+// Статус берется при добавлении, после изменения статуса задачу нужно добавить заново
+public class StateIndex<T extends Task> {
+    private final EnumMap<TaskState, LongHashMap<T>> byState = new EnumMap<>(TaskState.class);
+
+    public StateIndex() {
+        for (TaskState state : TaskState.values()) {
+            byState.put(state, new LongHashMap<>());
+        }
+    }
+
+    // добавить задачу в раздел ее текущего статуса (из прежнего раздела она убирается)
+    public void put(T task) {
+        remove(task.getId());
+        byState.get(task.getState()).put(task.getId(), task);
+    }
+
+    public void remove(long id) {
+        for (LongHashMap<T> tasks : byState.values()) {
+            if (tasks.remove(id) != null) {
+                return;
+            }
+        }
+    }
+
+    public List<T> get(TaskState state) {
+        return new ArrayList<>(byState.get(state).values());
+    }
+
+    public int count(TaskState state) {
+        return byState.get(state).size();
+    }
+
+    public void clear() {
+        byState.values().forEach(LongHashMap::clear);
+    }
+}
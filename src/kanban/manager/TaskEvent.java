@@ -0,0 +1,47 @@
+package kanban.manager;
+
+import kanban.model.TaskView;
+
+// событие изменения задачи: тип, номер версии менеджера и неизменяемая копия задачи
+public final class TaskEvent {
+
+    public enum Type {
+        CREATED, UPDATED, REMOVED, VIEWED
+    }
+
+    private final Type type;
+    // номер события, растет на единицу с каждым событием менеджера
+    private final long version;
+    private final TaskView task;
+
+    public TaskEvent(Type type, long version, TaskView task) {
+        this.type = type;
+        this.version = version;
+        this.task = task;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public TaskView getTask() {
+        return task;
+    }
+
+    public long getId() {
+        return task.getId();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{" +
+                "type=" + type +
+                ", version=" + version +
+                ", task=" + task +
+                '}';
+    }
+}
@@ -1,10 +1,15 @@
 package kanban.manager;
 
+import kanban.exception.ManagerTimeException;
 import kanban.model.Epic;
 import kanban.model.Subtask;
 import kanban.model.Task;
+import kanban.model.TaskState;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 // Менеджер задачь
 
@@ -75,4 +80,151 @@ public interface TaskManager {
     // проверка пересечений
     boolean validateIntersections(Task task);
 
+    // выполнить несколько изменений атомарно: при исключении в body все изменения откатываются
+    void inTransaction(Runnable body);
+
+    // добавить задачи любого типа пачкой, в порядке коллекции (эпик - раньше его подзадач).
+    // Для каждой задачи возвращается id или -1, если задача не добавлена
+    default long[] createAll(Collection<? extends Task> tasks) {
+        long[] result = new long[tasks.size()];
+        int i = 0;
+        for (Task task : tasks) {
+            try {
+                if (task instanceof Epic) {
+                    result[i] = createEpic((Epic) task);
+                } else if (task instanceof Subtask) {
+                    result[i] = createSubtask((Subtask) task);
+                } else {
+                    result[i] = createTask(task);
+                }
+            } catch (ManagerTimeException e) {
+                // пересекается по времени с расписанием или с задачей из этой же пачки
+                result[i] = -1;
+            }
+            i++;
+        }
+        return result;
+    }
+
+    // обновить задачи пачкой, для каждой задачи возвращается id или -1, если задача не обновлена
+    default long[] updateAll(Collection<? extends Task> tasks) {
+        long[] result = new long[tasks.size()];
+        int i = 0;
+        for (Task task : tasks) {
+            try {
+                if (task instanceof Epic) {
+                    result[i] = updateEpic((Epic) task);
+                } else if (task instanceof Subtask) {
+                    result[i] = updateSubtask((Subtask) task);
+                } else {
+                    result[i] = updateTask(task);
+                }
+            } catch (ManagerTimeException e) {
+                result[i] = -1;
+            }
+            i++;
+        }
+        return result;
+    }
+
+    // удалить задачи любого типа по идентификаторам, для каждого id - удалена ли задача
+    default boolean[] removeAll(long[] ids) {
+        boolean[] result = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = findById(ids[i]);
+            if (task instanceof Epic) {
+                result[i] = removeEpic(ids[i]);
+            } else if (task instanceof Subtask) {
+                result[i] = removeSubtask(ids[i]);
+            } else if (task != null) {
+                result[i] = removeTask(ids[i]);
+            }
+        }
+        return result;
+    }
+
+    // задачи и подзадачи, попадающие в окно [from, to), в порядке startTime; null - без границы
+    default List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = (from != null) ? from : LocalDateTime.MIN;
+        LocalDateTime end = (to != null) ? to : LocalDateTime.MAX;
+        return getPrioritizedTasks().stream()
+                .filter(t -> t.getStartTime() != null && t.getStartTime().isBefore(end)
+                        && (t.getEndTime().isAfter(start) || !t.getStartTime().isBefore(start)))
+                .collect(Collectors.toList());
+    }
+
+    // задачи, эпики и подзадачи с заданным статусом
+
+    default List<Task> getTasksByState(TaskState state) {
+        return getAllTasks().stream().filter(t -> t.getState() == state).collect(Collectors.toList());
+    }
+
+    default List<Epic> getEpicsByState(TaskState state) {
+        return getAllEpics().stream().filter(t -> t.getState() == state).collect(Collectors.toList());
+    }
+
+    default List<Subtask> getSubtasksByState(TaskState state) {
+        return getAllSubtasks().stream().filter(t -> t.getState() == state).collect(Collectors.toList());
+    }
+
+    // постраничные выборки: offset - сколько пропустить, limit - размер страницы.
+    // Варианты After - страница по ключу: для следующей страницы передается id (или задача) последней строки
+
+    default List<Task> getTasks(int offset, int limit) {
+        return Paging.page(getAllTasks(), offset, limit);
+    }
+
+    default List<Epic> getEpics(int offset, int limit) {
+        return Paging.page(getAllEpics(), offset, limit);
+    }
+
+    default List<Subtask> getSubtasks(int offset, int limit) {
+        return Paging.page(getAllSubtasks(), offset, limit);
+    }
+
+    // задачи с id больше afterId по возрастанию id
+    default List<Task> getTasksAfter(long afterId, int limit) {
+        return Paging.afterId(getAllTasks(), afterId, limit);
+    }
+
+    default List<Epic> getEpicsAfter(long afterId, int limit) {
+        return Paging.afterId(getAllEpics(), afterId, limit);
+    }
+
+    default List<Subtask> getSubtasksAfter(long afterId, int limit) {
+        return Paging.afterId(getAllSubtasks(), afterId, limit);
+    }
+
+    default List<Task> getPrioritizedTasks(int offset, int limit) {
+        return Paging.page(getPrioritizedTasks(), offset, limit);
+    }
+
+    // расписание после задачи after в порядке startTime, null - с начала
+    default List<Task> getPrioritizedTasksAfter(Task after, int limit) {
+        List<Task> tasks = getPrioritizedTasks();
+        int from = 0;
+        while (after != null && from < tasks.size() && tasks.get(from).compareTo(after) <= 0) {
+            from++;
+        }
+        return Paging.page(tasks, from, limit);
+    }
+
+    default List<Task> getHistory(int offset, int limit) {
+        return Paging.page(getHistory(), offset, limit);
+    }
+
+    // неизменяемый снимок доски на текущий момент, по умолчанию собирается целиком
+    default TaskSnapshot snapshot() {
+        return TaskSnapshot.of(this);
+    }
+
+    // найти задачу любого типа по идентификатору, в историю просмотров не попадает
+    Task findById(long id);
+
+    // найти задачу по идентификатору, null - не найдена или другого типа
+    default <T extends Task> T findById(long id, Class<T> type) {
+        Task task = findById(id);
+        return type.isInstance(task) ? type.cast(task) : null;
+    }
+
 }
@@ -0,0 +1,150 @@
+package kanban.manager;
+
+import kanban.model.Epic;
+import kanban.model.Subtask;
+import kanban.model.Task;
+import kanban.model.TaskView;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+// неизменяемый снимок доски на момент времени: задачи хранятся как TaskView
+// в PersistentLongMap, новая версия снимка делит со старой все неизмененные узлы.
+// Снимок можно обходить из любого числа потоков без блокировок и копирования
+public final class TaskSnapshot {
+    static final TaskSnapshot EMPTY = new TaskSnapshot(PersistentLongMap.empty(), PersistentLongMap.empty(),
+            PersistentLongMap.empty(), PersistentLongMap.empty());
+
+    private final PersistentLongMap<TaskView> tasks;
+    private final PersistentLongMap<TaskView> epics;
+    private final PersistentLongMap<TaskView> subtasks;
+    // подзадачи по id эпика
+    private final PersistentLongMap<PersistentLongMap<TaskView>> epicSubtasks;
+
+    private TaskSnapshot(PersistentLongMap<TaskView> tasks, PersistentLongMap<TaskView> epics,
+                         PersistentLongMap<TaskView> subtasks,
+                         PersistentLongMap<PersistentLongMap<TaskView>> epicSubtasks) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.epicSubtasks = epicSubtasks;
+    }
+
+    // снимок, собранный целиком по спискам менеджера
+    public static TaskSnapshot of(TaskManager manager) {
+        TaskSnapshot result = EMPTY;
+        for (Task task : manager.getAllTasks()) {
+            result = result.with(TaskView.of(task));
+        }
+        for (Epic epic : manager.getAllEpics()) {
+            result = result.with(TaskView.of(epic));
+        }
+        for (Subtask subtask : manager.getAllSubtasks()) {
+            result = result.with(TaskView.of(subtask));
+        }
+        return result;
+    }
+
+    public TaskView getTask(long id) {
+        return tasks.get(id);
+    }
+
+    public TaskView getEpic(long id) {
+        return epics.get(id);
+    }
+
+    public TaskView getSubtask(long id) {
+        return subtasks.get(id);
+    }
+
+    // задача любого типа по id
+    public TaskView findById(long id) {
+        TaskView view = tasks.get(id);
+        if (view == null) {
+            view = epics.get(id);
+        }
+        if (view == null) {
+            view = subtasks.get(id);
+        }
+        return view;
+    }
+
+    // коллекции только для чтения в порядке id, обход без копирования
+
+    public Collection<TaskView> getTasks() {
+        return tasks.values();
+    }
+
+    public Collection<TaskView> getEpics() {
+        return epics.values();
+    }
+
+    public Collection<TaskView> getSubtasks() {
+        return subtasks.values();
+    }
+
+    public Collection<TaskView> getEpicSubtasks(long epicId) {
+        PersistentLongMap<TaskView> result = epicSubtasks.get(epicId);
+        if (result == null || !epics.containsKey(epicId)) {
+            return Collections.emptyList();
+        }
+        return result.values();
+    }
+
+    // задачи с id больше afterId в порядке id, без обхода предыдущих
+    Iterator<TaskView> tasksAfter(long afterId) {
+        return tasks.iteratorAfter(afterId);
+    }
+
+    Iterator<TaskView> epicsAfter(long afterId) {
+        return epics.iteratorAfter(afterId);
+    }
+
+    Iterator<TaskView> subtasksAfter(long afterId) {
+        return subtasks.iteratorAfter(afterId);
+    }
+
+    public int size() {
+        return tasks.size() + epics.size() + subtasks.size();
+    }
+
+    // снимок с добавленной или замененной задачей, O(log n)
+    TaskSnapshot with(TaskView view) {
+        TaskSnapshot result = without(view.getId());
+        long id = view.getId();
+        switch (view.getType()) {
+            case EPIC:
+                return new TaskSnapshot(result.tasks, result.epics.plus(id, view), result.subtasks,
+                        result.epicSubtasks);
+            case SUBTASK:
+                PersistentLongMap<TaskView> siblings = result.epicSubtasks.get(view.getEpic());
+                if (siblings == null) {
+                    siblings = PersistentLongMap.empty();
+                }
+                return new TaskSnapshot(result.tasks, result.epics, result.subtasks.plus(id, view),
+                        result.epicSubtasks.plus(view.getEpic(), siblings.plus(id, view)));
+            default:
+                return new TaskSnapshot(result.tasks.plus(id, view), result.epics, result.subtasks,
+                        result.epicSubtasks);
+        }
+    }
+
+    // снимок без задачи, O(log n)
+    TaskSnapshot without(long id) {
+        TaskView old = findById(id);
+        if (old == null) {
+            return this;
+        }
+        switch (old.getType()) {
+            case EPIC:
+                return new TaskSnapshot(tasks, epics.minus(id), subtasks, epicSubtasks);
+            case SUBTASK:
+                PersistentLongMap<TaskView> siblings = epicSubtasks.get(old.getEpic()).minus(id);
+                return new TaskSnapshot(tasks, epics, subtasks.minus(id), siblings.isEmpty()
+                        ? epicSubtasks.minus(old.getEpic()) : epicSubtasks.plus(old.getEpic(), siblings));
+            default:
+                return new TaskSnapshot(tasks.minus(id), epics, subtasks, epicSubtasks);
+        }
+    }
+}
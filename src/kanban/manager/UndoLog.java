@@ -0,0 +1,111 @@
+package kanban.manager;
+
+import kanban.model.Epic;
+import kanban.model.Subtask;
+import kanban.model.Task;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+// журнал отката транзакции: исходная версия каждой задачи, затронутой в транзакции,
+// и история просмотров на ее начало
+class UndoLog {
+    private final List<Task> history;
+    private final LongHashMap<Entry> entries = new LongHashMap<>();
+
+    UndoLog(List<Task> history) {
+        this.history = history;
+    }
+
+    // запомнить исходную версию задачи до первого изменения, task == null - задачи не было
+    void remember(long id, Task task) {
+        if (!entries.containsKey(id)) {
+            entries.put(id, new Entry(id, task));
+        }
+    }
+
+    // вернуть исходные версии: current - текущая задача по id,
+    // unlink/link - убрать задачу из индексов менеджера и вернуть ее туда без проверок
+    void rollback(LongFunction<Task> current, Consumer<Task> unlink, Consumer<Task> link) {
+        // текущие версии: сначала подзадачи (пока их эпики на месте), потом задачи и эпики
+        for (Entry entry : entries.values()) {
+            Task task = current.apply(entry.id);
+            if (task instanceof Subtask) {
+                unlink.accept(task);
+            }
+        }
+        for (Entry entry : entries.values()) {
+            Task task = current.apply(entry.id);
+            if (task != null) {
+                unlink.accept(task);
+            }
+        }
+        // исходные версии: сначала эпики, потом задачи и подзадачи
+        for (Entry entry : entries.values()) {
+            if (entry.original instanceof Epic) {
+                link.accept(entry.restore());
+            }
+        }
+        for (Entry entry : entries.values()) {
+            if (entry.original != null && !(entry.original instanceof Epic)) {
+                link.accept(entry.restore());
+            }
+        }
+    }
+
+    // вернуть историю просмотров на начало транзакции
+    void restoreHistory(HistoryManager historyManager) {
+        for (Task task : historyManager.getHistory()) {
+            historyManager.remove(task.getId());
+        }
+        for (Task task : history) {
+            historyManager.add(task);
+        }
+    }
+
+    private static class Entry {
+        private final long id;
+        // объект из менеджера, null - задачи до транзакции не было
+        private final Task original;
+        // значения полей на момент первого изменения
+        private final Task saved;
+
+        Entry(long id, Task original) {
+            this.id = id;
+            this.original = original;
+            this.saved = (original != null) ? copyOf(original) : null;
+        }
+
+        // вернуть исходному объекту сохраненные значения полей
+        Task restore() {
+            copyFields(saved, original);
+            return original;
+        }
+
+        private static Task copyOf(Task task) {
+            Task copy;
+            if (task instanceof Epic) {
+                copy = new Epic();
+            } else if (task instanceof Subtask) {
+                copy = new Subtask();
+            } else {
+                copy = new Task();
+            }
+            copyFields(task, copy);
+            return copy;
+        }
+
+        private static void copyFields(Task from, Task to) {
+            to.setId(from.getId());
+            to.setName(from.getName());
+            to.setDescription(from.getDescription());
+            to.setState(from.getState());
+            to.setStartTime(from.getStartTime());
+            to.setDuration(from.getDuration());
+            if (from instanceof Subtask) {
+                ((Subtask) to).setEpic(((Subtask) from).getEpic());
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package kanban.model;
 
+import kanban.manager.LongHashMap;
+
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
@@ -12,8 +14,20 @@ import static kanban.model.TaskState.NEW;
 // Эпик
 
 public class Epic extends Task {
-    // список идентификаторов подзадачь
-    private TreeSet<Subtask> subtasks = new TreeSet<>();
+    // подзадачи эпика, изменения через этот набор обновляют сводные значения
+    private final SubtaskSet subtasks = new SubtaskSet();
+
+    // сводные значения по подзадачам, поддерживаются при добавлении и удалении подзадач
+    // вклад каждой подзадачи запоминается, чтобы при удалении вычесть именно его
+    private final LongHashMap<Rollup> rollups = new LongHashMap<>();
+    private int countNew;
+    private int countInProgress;
+    private int countDone;
+    private int durationSum;
+    // крайние значения обновляются при добавлении; при удалении подзадачи с крайним значением
+    // пересчитываются по вкладам оставшихся подзадач
+    private LocalDateTime minStart;
+    private LocalDateTime maxEnd;
 
     public Epic() {
     }
@@ -28,6 +42,14 @@ public class Epic extends Task {
         return subtasks;
     }
 
+    // пересчитать вклад подзадачи, если ее изменили на месте
+    public void refresh(Subtask subtask) {
+        if (rollups.containsKey(subtask.getId())) {
+            subtasks.remove(subtask);
+            subtasks.add(subtask);
+        }
+    }
+
 //    public void setEndTime(LocalDateTime endTime) {
 //        this.endTime = endTime;
 //    }
@@ -47,36 +69,10 @@ public class Epic extends Task {
 
     @Override
     public TaskState getState() {
-        //по умолчанию статус NEW
-        if (subtasks.size() == 0) {
+        // если все подзадачи в статусе NEW (или подзадач нет), то статус эпика NEW
+        if (countInProgress == 0 && countDone == 0) {
             return NEW;
-        }
-
-        boolean flagNew = false;
-        boolean flagInProgress = false;
-        boolean flagDone = false;
-
-        //проверяем статусы подзадачь
-        for (Subtask subtask : subtasks) {
-            if (subtask == null) {
-                continue;
-            }
-            switch (subtask.getState()) {
-                case NEW:
-                    flagNew = true;
-                    break;
-                case IN_PROGRESS:
-                    flagInProgress = true;
-                    break;
-                case DONE:
-                    flagDone = true;
-                    break;
-            }
-        }
-        // если все подзадачи в статусе NEW, то статус эпика NEW
-        if (!flagInProgress && !flagDone) {
-            return TaskState.NEW;
-        } else if (!flagNew && !flagInProgress) {
+        } else if (countNew == 0 && countInProgress == 0) {
             // если все подзадачи в статусе DONE, то статус эпика DONE
             return TaskState.DONE;
         } else {
@@ -97,17 +93,173 @@ public class Epic extends Task {
 
     @Override
     public LocalDateTime getStartTime() {
-        return (subtasks.size() == 0) ? null : subtasks.first().getStartTime();
+        return minStart;
     }
 
     @Override
     public int getDuration() {
-        return subtasks.stream().mapToInt(s -> s.getDuration()).sum();
+        return durationSum;
     }
 
+    // самое позднее окончание подзадач со временем, а не окончание подзадачи с последним startTime
     @Override
     public LocalDateTime getEndTime() {
-        return (subtasks.size() == 0) ? null : subtasks.last().getEndTime();
+        return maxEnd;
+    }
+
+    // учесть подзадачу в сводных значениях
+    private void addRollup(Subtask subtask) {
+        Rollup rollup = new Rollup(subtask);
+        Rollup old = rollups.put(subtask.getId(), rollup);
+        if (old != null) {
+            apply(old, -1);
+        }
+        apply(rollup, 1);
+    }
+
+    // убрать вклад подзадачи из сводных значений
+    private void removeRollup(long id) {
+        Rollup old = rollups.remove(id);
+        if (old != null) {
+            apply(old, -1);
+        }
+    }
+
+    private void apply(Rollup rollup, int sign) {
+        if (rollup.state != null) {
+            switch (rollup.state) {
+                case NEW:
+                    countNew += sign;
+                    break;
+                case IN_PROGRESS:
+                    countInProgress += sign;
+                    break;
+                case DONE:
+                    countDone += sign;
+                    break;
+            }
+        }
+        durationSum += sign * rollup.duration;
+        if (rollup.start == null) {
+            return;
+        }
+        if (sign > 0) {
+            extendBounds(rollup);
+        } else if (rollup.start.equals(minStart) || rollup.end.equals(maxEnd)) {
+            minStart = null;
+            maxEnd = null;
+            for (Rollup other : rollups.values()) {
+                if (other.start != null) {
+                    extendBounds(other);
+                }
+            }
+        }
+    }
+
+    private void extendBounds(Rollup rollup) {
+        if (minStart == null || rollup.start.isBefore(minStart)) {
+            minStart = rollup.start;
+        }
+        if (maxEnd == null || rollup.end.isAfter(maxEnd)) {
+            maxEnd = rollup.end;
+        }
+    }
+
+    private void clearRollups() {
+        rollups.clear();
+        countNew = 0;
+        countInProgress = 0;
+        countDone = 0;
+        durationSum = 0;
+        minStart = null;
+        maxEnd = null;
+    }
+
+    // вклад подзадачи на момент добавления
+    private static class Rollup {
+        private final TaskState state;
+        private final int duration;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Rollup(Subtask subtask) {
+            state = subtask.getState();
+            duration = subtask.getDuration();
+            start = subtask.getStartTime();
+            end = subtask.getEndTime();
+        }
+    }
+
+    // упорядоченный набор подзадач, добавление и удаление обновляют сводные значения эпика
+    private class SubtaskSet extends AbstractSet<Subtask> {
+        private final TreeSet<Subtask> set = new TreeSet<>();
+
+        @Override
+        public boolean add(Subtask subtask) {
+            boolean added = set.add(subtask);
+            if (added) {
+                addRollup(subtask);
+            }
+            return added;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Subtask)) {
+                return false;
+            }
+            Subtask subtask = (Subtask) o;
+            boolean removed = set.remove(subtask);
+            if (!removed && rollups.containsKey(subtask.getId())) {
+                // время подзадачи изменили на месте, по порядку TreeSet ее уже не найти
+                removed = set.removeIf(s -> s.getId() == subtask.getId());
+            }
+            if (removed) {
+                removeRollup(subtask.getId());
+            }
+            return removed;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return set.contains(o);
+        }
+
+        @Override
+        public void clear() {
+            set.clear();
+            clearRollups();
+        }
+
+        @Override
+        public Iterator<Subtask> iterator() {
+            Iterator<Subtask> iterator = set.iterator();
+            return new Iterator<>() {
+                private Subtask current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Subtask next() {
+                    current = iterator.next();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    removeRollup(current.getId());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
     }
 
 
@@ -1,5 +1,16 @@
 package kanban.model;
 
 public enum TaskType {
-    TASK, EPIC, SUBTASK
+    TASK, EPIC, SUBTASK;
+
+    // тип задачи по ее классу
+    public static TaskType of(Task task) {
+        if (task instanceof Epic) {
+            return EPIC;
+        }
+        if (task instanceof Subtask) {
+            return SUBTASK;
+        }
+        return TASK;
+    }
 }
@@ -0,0 +1,130 @@
+package kanban.model;
+// Неизменяемая копия задачи, эпика или подзадачи на момент снимка
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public final class TaskView {
+    private final long id;
+    private final TaskType type;
+    private final String name;
+    private final String description;
+    private final TaskState state;
+    private final int duration;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    // эпик подзадачи, -1 для задач и эпиков
+    private final long epicId;
+
+    private TaskView(Task task) {
+        this.id = task.getId();
+        this.type = TaskType.of(task);
+        this.name = task.getName();
+        this.description = task.getDescription();
+        // у эпика статус и время рассчитываются по подзадачам на момент копии
+        this.state = task.getState();
+        this.duration = task.getDuration();
+        this.startTime = task.getStartTime();
+        this.endTime = task.getEndTime();
+        this.epicId = (task instanceof Subtask) ? ((Subtask) task).getEpic() : -1;
+    }
+
+    public static TaskView of(Task task) {
+        return new TaskView(task);
+    }
+
+    // get
+
+    public long getId() {
+        return id;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public TaskState getState() {
+        return state;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public long getEpic() {
+        return epicId;
+    }
+
+    // изменяемая копия для последующего update в менеджере (у эпика без подзадач)
+    public Task toTask() {
+        Task task;
+        switch (type) {
+            case SUBTASK:
+                task = new Subtask(name, description, epicId);
+                break;
+            case EPIC:
+                task = new Epic(name, description);
+                break;
+            default:
+                task = new Task(name, description);
+        }
+        task.setId(id);
+        task.setState(state);
+        task.setDuration(duration);
+        task.setStartTime(startTime);
+        return task;
+    }
+
+    // toString
+    @Override
+    public String toString() {
+        return "TaskView{" +
+                "id=" + id +
+                ", type=" + type +
+                ", name='" + name + '\'' +
+                ", description='" + description + '\'' +
+                ", state=" + state +
+                ", duration=" + duration +
+                ", startTime=" + startTime +
+                ", epic=" + epicId +
+                '}';
+    }
+
+    // equals
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskView view = (TaskView) o;
+        return id == view.id
+                && type == view.type
+                && duration == view.duration
+                && epicId == view.epicId
+                && Objects.equals(name, view.name)
+                && Objects.equals(description, view.description)
+                && state == view.state
+                && Objects.equals(startTime, view.startTime)
+                && Objects.equals(endTime, view.endTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, type, name, description, state, duration, startTime, epicId);
+    }
+}
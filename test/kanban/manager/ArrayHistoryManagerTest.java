@@ -0,0 +1,45 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrayHistoryManagerTest extends HistoryManagerTest {
+
+    @Override
+    protected HistoryManager createHistoryManager(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+
+    @Test
+    void sameAsLinkedHistory() {
+        Random random = new Random(5);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Task task = new Task("task" + i, "info");
+            task.setId(i);
+            tasks.add(task);
+        }
+        for (int capacity : new int[]{1, 7, 100, InMemoryHistoryManager.UNBOUNDED}) {
+            HistoryManager expected = new InMemoryHistoryManager(capacity);
+            ArrayHistoryManager history = new ArrayHistoryManager(capacity);
+            for (int i = 0; i < 20_000; i++) {
+                Task task = tasks.get(random.nextInt(tasks.size()));
+                if (random.nextInt(4) == 0) {
+                    expected.remove(task.getId());
+                    history.remove(task.getId());
+                } else {
+                    expected.add(task);
+                    history.add(task);
+                }
+            }
+            assertEquals(expected.getHistory(), history.getHistory());
+            assertEquals(expected.getHistory().size(), history.size());
+        }
+    }
+}
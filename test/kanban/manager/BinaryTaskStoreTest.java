@@ -0,0 +1,200 @@
+package kanban.manager;
+
+import kanban.exception.ManagerLoadException;
+import kanban.model.Epic;
+import kanban.model.Subtask;
+import kanban.model.Task;
+import kanban.model.TaskState;
+import kanban.model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryTaskStoreTest {
+
+    File createTemporaryFile(String suffix) {
+        try {
+            File tempFile = File.createTempFile("test_data", suffix);
+            tempFile.deleteOnExit();
+            return tempFile;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void writeAndRead() {
+        Task task = new Task("task, 1", "описание");
+        task.setId(1);
+        task.setState(TaskState.DONE);
+        task.setStartTime(LocalDateTime.of(2023, 1, 1, 12, 0, 0, 123456789));
+        task.setDuration(90);
+        Epic epic = new Epic("epic", null);
+        epic.setId(2);
+        Subtask subtask = new Subtask("subtask", "description", 2);
+        subtask.setId(3);
+
+        File file = createTemporaryFile(".bin");
+        BinaryTaskStore.write(file, List.of(task, epic, subtask), List.of(3L, 1L));
+        BinaryTaskStore store = new BinaryTaskStore(file);
+
+        assertEquals(3, store.size());
+        assertEquals(List.of(task, epic, subtask), store.getTasks());
+        assertEquals(List.of(3L, 1L), store.getHistory());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    void cursor() {
+        Task task = new Task("task", "description");
+        task.setId(1);
+        Subtask subtask = new Subtask("subtask", "description", 5);
+        subtask.setId(2);
+
+        File file = createTemporaryFile(".bin");
+        BinaryTaskStore.write(file, List.of(task, subtask), List.of());
+        BinaryTaskStore.Cursor cursor = new BinaryTaskStore(file).cursor();
+
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.getId());
+        assertEquals(TaskType.TASK, cursor.getType());
+        assertNull(cursor.getStartTime());
+        assertTrue(cursor.next());
+        assertEquals(TaskType.SUBTASK, cursor.getType());
+        assertEquals(5, cursor.getEpicId());
+        assertEquals("subtask", cursor.getName());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void countWritten() {
+        File file = createTemporaryFile(".bin");
+        Task task = new Task("task", "description");
+        task.setId(1);
+        Task task2 = new Task("task2", "description");
+        task2.setId(2);
+        BinaryTaskStore.write(file, List.of(task, task2), List.of());
+
+        assertEquals(2, new BinaryTaskStore(file).size());
+    }
+
+    @Test
+    void damagedLength() throws IOException {
+        File file = createTemporaryFile(".bin");
+        Task task = new Task("task", "description");
+        task.setId(1);
+        BinaryTaskStore.write(file, List.of(task), List.of(1L));
+
+        // длина имени больше файла
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer.wrap(data).putInt(16 + 34, Integer.MAX_VALUE);
+        Files.write(file.toPath(), data);
+
+        BinaryTaskStore store = new BinaryTaskStore(file);
+        assertThrows(ManagerLoadException.class, store::getTasks);
+        assertThrows(ManagerLoadException.class, store::getHistory);
+    }
+
+    @Test
+    void damagedCount() throws IOException {
+        File file = createTemporaryFile(".bin");
+        Task task = new Task("task", "description");
+        task.setId(1);
+        BinaryTaskStore.write(file, List.of(task), List.of());
+
+        // в заголовке задач больше, чем записей в файле
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer.wrap(data).putInt(8, 5);
+        Files.write(file.toPath(), data);
+
+        assertThrows(ManagerLoadException.class, () -> new BinaryTaskStore(file).getTasks());
+    }
+
+    @Test
+    void damagedStartTime() throws IOException {
+        File file = createTemporaryFile(".bin");
+        Task task = new Task("task", "description");
+        task.setId(1);
+        task.setStartTime(LocalDateTime.of(2023, 1, 1, 12, 0));
+        BinaryTaskStore.write(file, List.of(task), List.of());
+
+        // наносекунды вне диапазона
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer.wrap(data).putInt(16 + 26, 2_000_000_000);
+        Files.write(file.toPath(), data);
+
+        BinaryTaskStore.Cursor cursor = new BinaryTaskStore(file).cursor();
+        assertTrue(cursor.next());
+        assertThrows(ManagerLoadException.class, cursor::getStartTime);
+    }
+
+    @Test
+    void csvToBinaryKeepsSource() throws IOException {
+        File csv = createTemporaryFile(".csv");
+        File binary = createTemporaryFile(".bin");
+        FileBackedTasksManager mgr = new FileBackedTasksManager(csv);
+        Task task = new Task("task1", "description");
+        mgr.createTask(task);
+        mgr.createTask(new Task("task2", "description"));
+        String data = Files.readString(csv.toPath()).replace("task2", "taskX");
+        Files.writeString(csv.toPath(), data);
+
+        BinaryTaskStore.csvToBinary(csv, binary);
+
+        // поврежденный CSV не переписан и не скопирован в карантин
+        assertEquals(data, Files.readString(csv.toPath()));
+        File[] quarantine = csv.getAbsoluteFile().getParentFile()
+                .listFiles((dir, name) -> name.startsWith(csv.getName() + ".damaged."));
+        assertEquals(0, quarantine.length);
+        assertEquals(List.of(task), new BinaryTaskStore(binary).getTasks());
+    }
+
+    @Test
+    void binaryToCsvDropsJournals() {
+        File csv = createTemporaryFile(".csv");
+        File binary = createTemporaryFile(".bin");
+        FileBackedTasksManager mgr = new FileBackedTasksManager(csv, true);
+        long old = mgr.createTask(new Task("old", "description"));
+        mgr.getTask(old);
+        mgr.close();
+        File log = mgr.getJournal().getFile();
+        assertTrue(log.exists());
+
+        Task task = new Task("task", "description");
+        task.setId(5);
+        BinaryTaskStore.write(binary, List.of(task), List.of(5L));
+        BinaryTaskStore.binaryToCsv(binary, csv);
+
+        // без удаления сегментов задача "old" вернулась бы из журнала
+        assertFalse(log.exists());
+        FileBackedTasksManager result = new FileBackedTasksManager(csv, true);
+        assertEquals(List.of(task), result.getAllTasks());
+        assertEquals(List.of(task), result.getHistory());
+        result.close();
+        result.getHistoryLog().getFile().deleteOnExit();
+    }
+
+    @Test
+    void convert() {
+        File binary = createTemporaryFile(".bin");
+        File csv = createTemporaryFile(".csv");
+        BinaryTaskStore.csvToBinary(new File("resources/template.csv"), binary);
+        BinaryTaskStore.binaryToCsv(binary, csv);
+
+        FileBackedTasksManager source = new FileBackedTasksManager(new File("resources/template.csv"));
+        FileBackedTasksManager result = new FileBackedTasksManager(csv);
+
+        assertEquals(7, new BinaryTaskStore(binary).size());
+        assertEquals(source.getAllTasks(), result.getAllTasks());
+        assertEquals(source.getAllEpics(), result.getAllEpics());
+        assertEquals(source.getAllSubtasks(), result.getAllSubtasks());
+        assertEquals(source.getHistory(), result.getHistory());
+    }
+}
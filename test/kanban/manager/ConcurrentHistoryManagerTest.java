@@ -0,0 +1,135 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+    private static final int THREADS = 8;
+
+    private static Task task(long id) {
+        Task task = new Task("task" + id, "info");
+        task.setId(id);
+        return task;
+    }
+
+    private static List<Long> ids(List<Task> tasks) {
+        List<Long> result = new ArrayList<>();
+        for (Task task : tasks) {
+            result.add(task.getId());
+        }
+        return result;
+    }
+
+    @Test
+    void sameOrderAsInMemory() {
+        HistoryManager expected = new InMemoryHistoryManager(5);
+        HistoryManager history = new ConcurrentHistoryManager(5);
+        for (int i = 0; i < 100; i++) {
+            Task task = task(i % 7);
+            expected.add(task);
+            history.add(task);
+            if (i % 3 == 0) {
+                expected.remove(i % 5);
+                history.remove(i % 5);
+            }
+        }
+        assertEquals(expected.getHistory(), history.getHistory());
+        assertEquals(expected.getHistory(1, 2), history.getHistory(1, 2));
+    }
+
+    @Test
+    void drainOnThreshold() {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(10);
+        for (int i = 0; i < ConcurrentHistoryManager.DRAIN_THRESHOLD - 1; i++) {
+            history.add(task(i));
+        }
+        assertEquals(ConcurrentHistoryManager.DRAIN_THRESHOLD - 1, history.pending());
+        // писатель сливает буферы сам, когда полоса заполнена
+        history.add(task(100));
+        assertEquals(0, history.pending());
+        assertEquals(10, history.getHistory().size());
+        assertEquals(100, history.getHistory().get(9).getId());
+    }
+
+    @Test
+    void readDoesNotWaitForDrain() throws Exception {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(10);
+        history.add(task(1));
+        assertEquals(1, history.getHistory().size());
+
+        CountDownLatch draining = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean armed = new AtomicBoolean();
+        Task slow = new Task("slow", "info") {
+            @Override
+            public long getId() {
+                // слив в потоке drainer останавливается на этой задаче
+                if (armed.get() && Thread.currentThread().getName().equals("drainer")) {
+                    draining.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return 2;
+            }
+        };
+        history.add(slow);
+        armed.set(true);
+        Thread drainer = new Thread(history::getHistory, "drainer");
+        drainer.start();
+        assertTrue(draining.await(10, TimeUnit.SECONDS));
+
+        // пока drainer держит блокировку, чтение возвращает прошлую историю
+        history.add(task(3));
+        assertEquals(List.of(task(1)), history.getHistory());
+
+        release.countDown();
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        // drainer слил и операцию, записанную во время слива
+        assertEquals(0, history.pending());
+        assertEquals(List.of(1L, 2L, 3L), ids(history.getHistory()));
+    }
+
+    @Test
+    void parallelViews() throws Exception {
+        HistoryManager history = new ConcurrentHistoryManager(1_000);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int shift = t * 100;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    history.add(task(shift + i % 100));
+                    if (i % 1_000 == 0) {
+                        // чтение во время записи
+                        List<Task> list = history.getHistory();
+                        assertEquals(list.size(), new HashSet<>(list).size());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        List<Task> list = history.getHistory();
+        assertEquals(THREADS * 100, list.size());
+        assertEquals(THREADS * 100, new HashSet<>(list).size());
+    }
+}
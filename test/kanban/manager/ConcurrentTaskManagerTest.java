@@ -0,0 +1,272 @@
+package kanban.manager;
+
+import kanban.exception.ManagerTimeException;
+import kanban.model.Epic;
+import kanban.model.Subtask;
+import kanban.model.Task;
+import kanban.model.TaskView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest {
+
+    private static final int THREADS = 8;
+
+    @Override
+    protected TaskManager getTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void parallelCreateSubtasks() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Epic epic = new Epic("epic" + i, "description");
+            manager.createEpic(epic);
+            epics.add(epic);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Epic epic : epics) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    manager.createSubtask(new Subtask("subtask" + i, "description", epic.getId()));
+                    manager.getEpic(epic.getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        Set<Long> ids = new HashSet<>();
+        subtasks.forEach(s -> ids.add(s.getId()));
+
+        assertEquals(THREADS * 500, subtasks.size());
+        assertEquals(THREADS * 500, ids.size());
+        for (Epic epic : epics) {
+            assertEquals(500, manager.getEpicSubtasks(epic.getId()).size());
+        }
+        assertEquals(THREADS, manager.getHistory().size());
+    }
+
+    @Test
+    void epicReadsConsistent() throws Exception {
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                Subtask subtask = new Subtask("subtask" + i, "description", epic.getId());
+                subtask.setDuration(10);
+                manager.createSubtask(subtask);
+                if (i % 2 == 0) {
+                    manager.removeSubtask(subtask.getId());
+                }
+            }
+        });
+        Future<?> reader = executor.submit(() -> {
+            while (!writer.isDone()) {
+                // сводные значения копии совпадают с ее подзадачами
+                Epic copy = manager.getEpic(epic.getId());
+                assertEquals(10 * copy.getSubtasks().size(), copy.getDuration());
+                assertNotSame(epic, copy);
+            }
+        });
+        writer.get();
+        reader.get();
+        executor.shutdown();
+
+        assertEquals(10000, manager.getEpic(epic.getId()).getDuration());
+        assertEquals(1000, manager.getAllEpics().get(0).getSubtasks().size());
+    }
+
+    @Test
+    void updateEpicKeepsSubtasks() {
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        Epic copy = manager.getEpic(epic.getId());
+        manager.createSubtask(new Subtask("subtask", "description", epic.getId()));
+
+        // копия взята до создания подзадачи, обновляются только поля эпика
+        copy.setName("renamed");
+        manager.updateEpic(copy);
+
+        Epic result = manager.getEpic(epic.getId());
+        assertEquals("renamed", result.getName());
+        assertEquals(1, result.getSubtasks().size());
+        assertEquals(manager.getAllSubtasks(), manager.getEpicSubtasks(epic.getId()));
+        Epic missing = new Epic("missing", "description");
+        missing.setId(1000);
+        assertEquals(-1, manager.updateEpic(missing));
+    }
+
+    @Test
+    void parallelScheduleConflicts() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        AtomicInteger created = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int shift = i;
+            futures.add(executor.submit(() -> {
+                Task task = new Task("task" + shift, "description");
+                task.setStartTime(time.plusMinutes(shift));
+                task.setDuration(60);
+                try {
+                    manager.createTask(task);
+                    created.incrementAndGet();
+                } catch (ManagerTimeException e) {
+                    // пересекается с уже созданной задачей
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertEquals(1, created.get());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void updateScheduledTask() {
+        Task task = new Task("task", "description");
+        task.setStartTime(LocalDateTime.of(2023, 1, 1, 12, 0));
+        task.setDuration(60);
+        manager.createTask(task);
+
+        Task moved = new Task("task", "description");
+        moved.setId(task.getId());
+        moved.setStartTime(LocalDateTime.of(2023, 1, 1, 12, 30));
+        moved.setDuration(60);
+        manager.updateTask(moved);
+
+        assertEquals(List.of(moved), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void transactionRollback() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        subtask.setStartTime(time);
+        subtask.setDuration(60);
+        manager.createSubtask(subtask);
+        Task task = new Task("task", "description");
+        manager.createTask(task);
+        manager.getTask(task.getId());
+
+        assertThrows(ManagerTimeException.class, () -> manager.inTransaction(() -> {
+            manager.removeEpic(epic.getId());
+            manager.removeTask(task.getId());
+            Task free = new Task("free", "description");
+            free.setStartTime(time);
+            free.setDuration(30);
+            manager.createTask(free);
+            // пересекается с задачей, созданной в этой же транзакции
+            Task conflict = new Task("conflict", "description");
+            conflict.setStartTime(time.plusMinutes(10));
+            conflict.setDuration(30);
+            manager.createTask(conflict);
+        }));
+
+        assertEquals(List.of(task), manager.getAllTasks());
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()));
+        assertEquals(List.of(subtask), manager.getPrioritizedTasks(time, time.plusHours(1)));
+        assertEquals(List.of(task), manager.getHistory());
+        assertEquals(3, manager.snapshot().size());
+        // расписание восстановлено: время подзадачи занято
+        assertFalse(manager.validateIntersections(conflictAt(time)));
+    }
+
+    @Test
+    void transactionBlocksWriters() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Future<Long>> created = new ArrayList<>();
+        manager.inTransaction(() -> {
+            manager.createTask(new Task("task1", "description"));
+            created.add(executor.submit(() -> manager.createTask(new Task("task2", "description"))));
+            manager.inTransaction(() -> manager.createTask(new Task("task3", "description")));
+            // изменение из другого потока ждет конца транзакции
+            assertFalse(created.get(0).isDone());
+        });
+        long id = created.get(0).get();
+        executor.shutdown();
+
+        assertEquals(3, manager.getAllTasks().size());
+        assertEquals("task2", manager.findById(id).getName());
+    }
+
+    private static Task conflictAt(LocalDateTime time) {
+        Task task = new Task("conflict", "description");
+        task.setStartTime(time);
+        task.setDuration(10);
+        return task;
+    }
+
+    @Test
+    void parallelSnapshotReaders() throws Exception {
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        AtomicInteger done = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                Subtask subtask = new Subtask("subtask" + i, "description", epic.getId());
+                manager.createSubtask(subtask);
+                if (i % 2 == 0) {
+                    manager.removeSubtask(subtask.getId());
+                }
+            }
+            done.set(1);
+        }));
+        for (int i = 1; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                while (done.get() == 0) {
+                    TaskSnapshot snapshot = manager.snapshot();
+                    // снимок не меняется, пока его обходят
+                    int size = snapshot.getSubtasks().size();
+                    int count = 0;
+                    for (TaskView ignored : snapshot.getSubtasks()) {
+                        count++;
+                    }
+                    assertEquals(size, count);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        TaskSnapshot snapshot = manager.snapshot();
+        assertEquals(1_000, snapshot.getEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskView.of(epic), snapshot.getEpic(epic.getId()));
+    }
+}
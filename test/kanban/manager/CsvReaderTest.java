@@ -0,0 +1,58 @@
+package kanban.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void split() {
+        assertEquals(List.of("1", "TASK", "name", "NEW", "description", ""),
+                CsvReader.split("1,TASK,\"name\",NEW,\"description\","));
+    }
+
+    @Test
+    void splitQuoted() {
+        assertEquals(List.of("a, b", "say \"hi\"", ""),
+                CsvReader.split("\"a, b\",\"say \"\"hi\"\"\",\"\""));
+    }
+
+    @Test
+    void quote() {
+        assertEquals("\"name\"", CsvReader.quote("name"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvReader.quote("say \"hi\""));
+        assertEquals("\"null\"", CsvReader.quote(null));
+    }
+
+    @Test
+    void readRecord() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("1,\"first\nsecond\",x\n\n2,\"b\"\n"));
+
+        assertEquals("1,\"first\nsecond\",x", reader.readRecord());
+        assertEquals("", reader.readRecord());
+        assertEquals("2,\"b\"", reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void readLongRecord() throws IOException {
+        // значение на многих строках, с удвоенными кавычками внутри
+        StringBuilder value = new StringBuilder("\"start");
+        for (int i = 0; i < 1000; i++) {
+            value.append("\nline ").append(i).append(" \"\"quoted\"\"");
+        }
+        value.append("\nend\"");
+        CsvReader reader = new CsvReader(new StringReader("1," + value + ",x\n2,\"b\"\n"));
+
+        String record = reader.readRecord();
+        assertEquals("1," + value + ",x", record);
+        assertEquals(3, CsvReader.split(record).size());
+        assertEquals("2,\"b\"", reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+}
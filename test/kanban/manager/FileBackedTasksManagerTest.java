@@ -1,8 +1,10 @@
 package kanban.manager;
 
+import kanban.exception.ManagerSaveException;
 import kanban.model.Epic;
 import kanban.model.Subtask;
 import kanban.model.Task;
+import kanban.model.TaskState;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -10,7 +12,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
@@ -96,15 +100,6 @@ class FileBackedTasksManagerTest extends TaskManagerTest {
 
     }
 
-    @Test
-    void deQuote() {
-        String quoted = "\"quoted text\"";
-        String unquoted = "quoted text";
-
-        assertEquals(unquoted, fileBackedTasksManager.deQuote(quoted));
-        assertEquals(unquoted, fileBackedTasksManager.deQuote(unquoted));
-    }
-
     @Test
     void fromString() {
         Task task = new Task("name1", "description1");
@@ -124,6 +119,26 @@ class FileBackedTasksManagerTest extends TaskManagerTest {
         assertEquals(subtask, fileBackedTasksManager.fromString(subtaskStr));
     }
 
+    @Test
+    void fromStringQuoted() {
+        Task task = new Task("name, with comma", "say \"hi\"\nand more");
+        task.setId(7);
+
+        assertEquals(task, fileBackedTasksManager.fromString(fileBackedTasksManager.toString(task)));
+    }
+
+    @Test
+    void saveQuoted() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile);
+        Task task = new Task("name, with comma", "say \"hi\"\nand more");
+        mgr.createTask(task);
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile);
+
+        assertEquals(List.of(task), mgr2.getAllTasks());
+    }
+
     @Test
     void historyToString() {
         restoreTest();
@@ -223,4 +238,393 @@ class FileBackedTasksManagerTest extends TaskManagerTest {
         assertTrue(history.size() == 0);
     }
 
+
+    @Test
+    void journalReplay() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.getJournal().getFile().deleteOnExit();
+        mgr.getHistoryLog().getFile().deleteOnExit();
+
+        Task task = new Task("task", "description");
+        Epic epic = new Epic("epic", "description");
+        mgr.createTask(task);
+        mgr.createEpic(epic);
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        Subtask subtask2 = new Subtask("subtask2", "description2", epic.getId());
+        mgr.createSubtask(subtask);
+        mgr.createSubtask(subtask2);
+        subtask.setState(TaskState.DONE);
+        mgr.updateSubtask(subtask);
+        mgr.removeSubtask(subtask2.getId());
+        mgr.getEpic(epic.getId());
+        mgr.getTask(task.getId());
+
+        assertEquals(6, mgr.getJournal().getRecords());
+        assertEquals(2, mgr.getHistoryLog().getRecords());
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+
+        assertEquals(mgr.getAllTasks(), mgr2.getAllTasks());
+        assertEquals(mgr.getAllSubtasks(), mgr2.getAllSubtasks());
+        assertEquals(mgr.getAllEpics(), mgr2.getAllEpics());
+        assertEquals(mgr.getHistory(), mgr2.getHistory());
+        assertEquals(TaskState.DONE, mgr2.getAllEpics().get(0).getState());
+    }
+
+    @Test
+    void journalSaveClearsLog() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+
+        Epic epic = new Epic("epic", "description");
+        mgr.createEpic(epic);
+        mgr.createSubtask(new Subtask("subtask", "description", epic.getId()));
+        File segment = mgr.getJournal().getFile();
+        mgr.save();
+
+        assertFalse(segment.exists());
+        assertEquals(0, mgr.getJournal().getRecords());
+
+        mgr.removeEpic(epic.getId());
+        mgr.createTask(new Task("task", "description"));
+
+        mgr.getJournal().getFile().deleteOnExit();
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+
+        assertEquals(mgr.getAllTasks(), mgr2.getAllTasks());
+        assertEquals(0, mgr2.getAllSubtasks().size());
+        assertEquals(0, mgr2.getAllEpics().size());
+    }
+
+    @Test
+    void journalCompaction() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.setCompaction(5, 0);
+
+        for (int i = 0; i < 23; i++) {
+            mgr.createTask(new Task("task" + i, "description" + i));
+        }
+
+        assertTrue(mgr.getJournal().getGeneration() > 1);
+
+        // дождаться фоновой записи снимка
+        mgr.save();
+        mgr.removeTask(0);
+        mgr.createTask(new Task("task", "description"));
+        mgr.getJournal().getFile().deleteOnExit();
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+
+        assertEquals(23, mgr2.getAllTasks().size());
+        assertEquals(mgr.getAllTasks(), mgr2.getAllTasks());
+    }
+
+    @Test
+    void readDoesNotRewriteStore() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile);
+        Task task = new Task("task", "description");
+        Task task2 = new Task("task2", "description2");
+        mgr.createTask(task);
+        mgr.createTask(task2);
+        String stored = Files.readString(saveFile.toPath());
+
+        mgr.getTask(task2.getId());
+        mgr.getTask(task.getId());
+        mgr.getHistoryLog().getFile().deleteOnExit();
+
+        assertEquals(stored, Files.readString(saveFile.toPath()));
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile);
+
+        assertEquals(List.of(task2, task), mgr2.getHistory());
+    }
+
+    @Test
+    void historyCompaction() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile);
+        mgr.setHistoryCompaction(4);
+        Task task = new Task("task", "description");
+        Task task2 = new Task("task2", "description2");
+        mgr.createTask(task);
+        mgr.createTask(task2);
+
+        for (int i = 0; i < 5; i++) {
+            mgr.getTask(task.getId());
+            mgr.getTask(task2.getId());
+        }
+        mgr.getTask(task.getId());
+        mgr.getHistoryLog().getFile().deleteOnExit();
+
+        assertTrue(mgr.getHistoryLog().getRecords() < 4);
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile);
+
+        assertEquals(List.of(task2, task), mgr2.getHistory());
+    }
+
+    @Test
+    void groupCommit() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.enableGroupCommit(60_000, 1000);
+        Epic epic = new Epic("epic", "description");
+        mgr.createEpic(epic);
+        for (int i = 0; i < 50; i++) {
+            mgr.createSubtask(new Subtask("subtask" + i, "description" + i, epic.getId()));
+        }
+        mgr.getEpic(epic.getId());
+        mgr.getJournal().getFile().deleteOnExit();
+        mgr.getHistoryLog().getFile().deleteOnExit();
+
+        assertFalse(mgr.getJournal().getFile().exists());
+
+        mgr.close();
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+
+        assertEquals(50, mgr2.getAllSubtasks().size());
+        assertEquals(mgr.getAllSubtasks(), mgr2.getAllSubtasks());
+        assertEquals(mgr.getHistory(), mgr2.getHistory());
+    }
+
+    @Test
+    void saveAtomicWithChecksums() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile);
+        mgr.createTask(new Task("task", "description"));
+
+        List<String> lines = Files.readAllLines(saveFile.toPath());
+
+        assertTrue(RecordChecksum.isSigned(lines.get(0)));
+        assertTrue(RecordChecksum.isSigned(lines.get(1)));
+        assertFalse(new File(saveFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    void loadDamagedRecord() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile);
+        Task task = new Task("task1", "description");
+        mgr.createTask(task);
+        mgr.createTask(new Task("task2", "description"));
+        mgr.createTask(new Task("task3", "description"));
+
+        String data = Files.readString(saveFile.toPath());
+        Files.writeString(saveFile.toPath(), data.replace("task2", "taskX"));
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile);
+
+        assertTrue(mgr2.isDamaged());
+        assertEquals(List.of(task), mgr2.getAllTasks());
+        // исходный файл с записями после поврежденной сохранен
+        assertEquals(1, mgr2.getQuarantineFiles().size());
+        File quarantine = mgr2.getQuarantineFiles().get(0);
+        quarantine.deleteOnExit();
+        assertTrue(Files.readString(quarantine.toPath()).contains("task3"));
+
+        FileBackedTasksManager mgr3 = new FileBackedTasksManager(saveFile);
+
+        assertFalse(mgr3.isDamaged());
+        assertTrue(mgr3.getQuarantineFiles().isEmpty());
+        assertEquals(List.of(task), mgr3.getAllTasks());
+    }
+
+    @Test
+    void loadDamagedJournal() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        File segment = mgr.getJournal().getFile();
+        segment.deleteOnExit();
+        Task task = new Task("task1", "description");
+        mgr.createTask(task);
+        mgr.createTask(new Task("task2", "description"));
+        mgr.createTask(new Task("task3", "description"));
+        mgr.getJournal().flush();
+
+        // повреждена запись в середине сегмента журнала
+        String data = Files.readString(segment.toPath());
+        Files.writeString(segment.toPath(), data.replace("task2", "taskX"));
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+        mgr2.getJournal().getFile().deleteOnExit();
+
+        assertTrue(mgr2.isDamaged());
+        assertEquals(List.of(task), mgr2.getAllTasks());
+        // сегмент удален снимком, но его копия сохранена
+        assertFalse(segment.exists());
+        assertEquals(1, mgr2.getQuarantineFiles().size());
+        File quarantine = mgr2.getQuarantineFiles().get(0);
+        quarantine.deleteOnExit();
+        assertTrue(quarantine.getName().startsWith(segment.getName() + ".damaged."));
+        assertTrue(Files.readString(quarantine.toPath()).contains("task3"));
+    }
+
+    @Test
+    void loadUnsignedRecordAfterSigned() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile);
+        Task task = new Task("task1", "description");
+        mgr.createTask(task);
+        mgr.createTask(new Task("task2", "description"));
+
+        // запись оборвана внутри контрольной суммы
+        String data = Files.readString(saveFile.toPath());
+        int start = data.indexOf("task2");
+        int end = data.indexOf('\n', start);
+        Files.writeString(saveFile.toPath(), data.substring(0, end - 10) + data.substring(end));
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile);
+        mgr2.getQuarantineFiles().forEach(File::deleteOnExit);
+
+        assertTrue(mgr2.isDamaged());
+        assertEquals(List.of(task), mgr2.getAllTasks());
+    }
+
+    @Test
+    void loadTornJournal() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.createTask(new Task("task1", "description"));
+        mgr.createTask(new Task("task2", "description"));
+        // запись оборвана при сбое
+        Files.writeString(mgr.getJournal().getFile().toPath(), "CREATE,2,TASK,\"ta",
+                StandardOpenOption.APPEND);
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+
+        assertTrue(mgr2.isDamaged());
+        assertEquals(mgr.getAllTasks(), mgr2.getAllTasks());
+
+        mgr2.createTask(new Task("task3", "description"));
+        mgr2.getJournal().getFile().deleteOnExit();
+        FileBackedTasksManager mgr3 = new FileBackedTasksManager(saveFile, true);
+
+        assertFalse(mgr3.isDamaged());
+        assertEquals(3, mgr3.getAllTasks().size());
+    }
+
+    @Test
+    void batchPersistedOnce() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.getJournal().getFile().deleteOnExit();
+
+        Epic epic = new Epic("epic", "description");
+        mgr.createEpic(epic);
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Subtask("subtask" + i, "description", epic.getId()));
+        }
+        Task task = new Task("task", "description");
+        batch.add(task);
+        mgr.createAll(batch);
+        assertEquals(12, mgr.getJournal().getRecords());
+
+        task.setState(TaskState.DONE);
+        mgr.updateAll(List.of(task));
+        mgr.removeAll(new long[]{batch.get(0).getId(), batch.get(1).getId()});
+        assertEquals(15, mgr.getJournal().getRecords());
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+        assertEquals(mgr.getAllTasks(), mgr2.getAllTasks());
+        assertEquals(mgr.getAllSubtasks(), mgr2.getAllSubtasks());
+        assertEquals(8, mgr2.getEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskState.DONE, mgr2.getAllTasks().get(0).getState());
+
+        // без журнала пачка сохраняется в файл целиком
+        File plainFile = createTemporaryFile();
+        FileBackedTasksManager plain = new FileBackedTasksManager(plainFile);
+        plain.createAll(List.of(new Task("task1", "description"), new Task("task2", "description")));
+        assertEquals(2, new FileBackedTasksManager(plainFile).getAllTasks().size());
+    }
+
+    @Test
+    void backgroundCompactionFailureReported() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.getJournal().getFile().deleteOnExit();
+        // временный файл снимка нельзя создать - на его месте каталог
+        File temp = new File(saveFile.getPath() + ".tmp");
+        assertTrue(temp.mkdir());
+        mgr.setCompaction(1, 0);
+        Task task = new Task("task1", "description");
+        mgr.createTask(task);
+
+        assertThrows(ManagerSaveException.class, mgr::flush);
+        assertTrue(temp.delete());
+        mgr.save();
+        mgr.getJournal().getFile().deleteOnExit();
+
+        assertEquals(List.of(task), new FileBackedTasksManager(saveFile, true).getAllTasks());
+    }
+
+    @Test
+    void interruptedBatchPersisted() {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.getJournal().getFile().deleteOnExit();
+        Task task = new Task("task1", "description");
+        Task broken = new Task("task2", "description") {
+            @Override
+            public LocalDateTime getStartTime() {
+                throw new IllegalStateException("broken task");
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> mgr.createAll(List.of(task, broken)));
+
+        // уже добавленная часть пачки записана в журнал
+        assertEquals(1, mgr.getJournal().getRecords());
+        assertEquals(List.of(task), new FileBackedTasksManager(saveFile, true).getAllTasks());
+    }
+
+    @Test
+    void transactionPersistedOnce() throws IOException {
+        File saveFile = createTemporaryFile();
+        FileBackedTasksManager mgr = new FileBackedTasksManager(saveFile, true);
+        mgr.getJournal().getFile().deleteOnExit();
+        mgr.getHistoryLog().getFile().deleteOnExit();
+        Epic epic = new Epic("epic", "description");
+        mgr.createEpic(epic);
+
+        mgr.inTransaction(() -> {
+            mgr.createSubtask(new Subtask("subtask1", "description", epic.getId()));
+            mgr.createSubtask(new Subtask("subtask2", "description", epic.getId()));
+            mgr.createTask(new Task("task", "description"));
+        });
+        // CREATE эпика + BEGIN, 3 записи, COMMIT
+        assertEquals(6, mgr.getJournal().getRecords());
+
+        assertThrows(IllegalStateException.class, () -> mgr.inTransaction(() -> {
+            mgr.removeEpic(epic.getId());
+            mgr.getTask(mgr.getAllTasks().get(0).getId());
+            throw new IllegalStateException("cancel");
+        }));
+        assertEquals(6, mgr.getJournal().getRecords());
+        assertEquals(0, mgr.getHistory().size());
+
+        // транзакция оборвана при сбое - ее записи не применяются
+        Files.writeString(mgr.getJournal().getFile().toPath(),
+                RecordChecksum.sign("BEGIN") + "\n" + RecordChecksum.sign("REMOVE,EPIC," + epic.getId()) + "\n",
+                StandardOpenOption.APPEND);
+
+        FileBackedTasksManager mgr2 = new FileBackedTasksManager(saveFile, true);
+        assertTrue(mgr2.isDamaged());
+        assertEquals(mgr.getAllTasks(), mgr2.getAllTasks());
+        assertEquals(mgr.getAllEpics(), mgr2.getAllEpics());
+        assertEquals(2, mgr2.getEpicSubtasks(epic.getId()).size());
+        assertEquals(0, mgr2.getHistory().size());
+
+        // без журнала транзакция сохраняется в файл целиком
+        File plainFile = createTemporaryFile();
+        FileBackedTasksManager plain = new FileBackedTasksManager(plainFile);
+        plain.inTransaction(() -> {
+            plain.createTask(new Task("task1", "description"));
+            plain.createTask(new Task("task2", "description"));
+        });
+        assertEquals(2, new FileBackedTasksManager(plainFile).getAllTasks().size());
+    }
 }
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import kanban.model.Task;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -12,9 +13,14 @@ class HistoryManagerTest {
 
     private HistoryManager historyManager;
 
+    // реализация истории, которую проверяет тест
+    protected HistoryManager createHistoryManager(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
     @BeforeEach
     void init() {
-        historyManager = new InMemoryHistoryManager();
+        historyManager = createHistoryManager(InMemoryHistoryManager.UNBOUNDED);
     }
 
     @Test
@@ -133,4 +139,70 @@ class HistoryManagerTest {
         assertEquals(List.of(task, task2), list);
     }
 
-}
\ No newline at end of file
+    @Test
+    void historyPage() {
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task("task" + i, "info");
+            task.setId(i);
+            historyManager.add(task);
+        }
+        List<Task> list = historyManager.getHistory();
+
+        assertEquals(list.subList(0, 2), historyManager.getHistory(0, 2));
+        assertEquals(list.subList(4, 5), historyManager.getHistory(4, 2));
+        assertEquals(0, historyManager.getHistory(5, 2).size());
+        assertThrows(IllegalArgumentException.class, () -> historyManager.getHistory(0, -1));
+    }
+
+    @Test
+    void boundedHistory() {
+        HistoryManager bounded = createHistoryManager(3);
+        Task[] tasks = new Task[5];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("task" + i, "info");
+            tasks[i].setId(i);
+        }
+        bounded.add(tasks[0]);
+        bounded.add(tasks[1]);
+        bounded.add(tasks[2]);
+        // повторный просмотр переносит задачу в конец, вытесняется самая давняя
+        bounded.add(tasks[0]);
+        bounded.add(tasks[3]);
+        assertEquals(List.of(tasks[2], tasks[0], tasks[3]), bounded.getHistory());
+
+        bounded.remove(tasks[0].getId());
+        bounded.add(tasks[4]);
+        assertEquals(List.of(tasks[2], tasks[3], tasks[4]), bounded.getHistory());
+        bounded.add(tasks[1]);
+        assertEquals(List.of(tasks[3], tasks[4], tasks[1]), bounded.getHistory());
+
+        assertEquals(Manager.DEFAULT_HISTORY_CAPACITY,
+                ((ArrayHistoryManager) Manager.getDefaultHistory()).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> createHistoryManager(0));
+    }
+
+    @Test
+    void recentAndView() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task("task" + i, "info");
+            task.setId(i);
+            historyManager.add(task);
+            tasks.add(task);
+        }
+        historyManager.add(tasks.get(1));
+
+        List<Task> recent = new ArrayList<>();
+        historyManager.forEachRecent(3, recent::add);
+        assertEquals(List.of(tasks.get(1), tasks.get(4), tasks.get(3)), recent);
+
+        recent.clear();
+        historyManager.forEachRecent(10, recent::add);
+        assertEquals(5, recent.size());
+        assertThrows(IllegalArgumentException.class, () -> historyManager.forEachRecent(-1, recent::add));
+
+        List<Task> all = new ArrayList<>();
+        historyManager.history().forEach(all::add);
+        assertEquals(historyManager.getHistory(), all);
+    }
+}
@@ -0,0 +1,103 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryServiceTest {
+
+    private static Task task(long id) {
+        Task task = new Task("task" + id, "info");
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void partitions() {
+        HistoryService service = new HistoryService(2, Duration.ofMinutes(1), 100_000);
+        Task task1 = task(1);
+        Task task2 = task(2);
+        Task task3 = task(3);
+        service.add("alice", task1);
+        service.add("alice", task2);
+        service.add("alice", task3);
+        service.add("bob", task1);
+
+        assertEquals(List.of(task2, task3), service.getHistory("alice"));
+        // истории ссылаются на один и тот же объект задачи
+        assertSame(service.getHistory("bob").get(0), task1);
+        assertEquals(3, service.entries());
+
+        service.remove("alice", 2);
+        assertEquals(List.of(task3), service.getHistory("alice"));
+        service.removeUser("bob");
+        assertEquals(0, service.getHistory("bob").size());
+        assertEquals(1, service.size());
+        assertEquals(1, service.entries());
+    }
+
+    @Test
+    void idleEviction() {
+        AtomicLong now = new AtomicLong();
+        HistoryService service = new HistoryService(10, Duration.ofMillis(100), 100_000, now::get);
+        service.add("alice", task(1));
+        now.set(50);
+        service.add("bob", task(2));
+        now.set(120);
+        // alice простаивает 120 мс, bob - 70 мс
+        assertEquals(1, service.evictIdle());
+        assertEquals(0, service.getHistory("alice").size());
+        assertEquals(1, service.getHistory("bob").size());
+        now.set(300);
+        service.add("carol", task(3));
+        assertEquals(1, service.size());
+        assertEquals(1, service.entries());
+    }
+
+    // бюджет на две полные истории по 3 записи
+    private static final long TWO_HISTORIES =
+            2 * (HistoryService.PARTITION_BYTES + 3 * HistoryService.ENTRY_BYTES);
+
+    @Test
+    void memoryBudget() {
+        HistoryService service = new HistoryService(3, Duration.ofHours(1), TWO_HISTORIES);
+        for (int i = 0; i < 3; i++) {
+            service.add("alice", task(i));
+        }
+        assertEquals(HistoryService.PARTITION_BYTES + 2 * "alice".length() + 3 * HistoryService.ENTRY_BYTES,
+                service.bytes());
+        service.add("bob", task(10));
+        service.add("bob", task(11));
+        service.getHistory("alice");
+        // бюджет превышен - вытесняется bob, к которому обращались раньше
+        service.add("carol", task(20));
+        assertEquals(0, service.getHistory("bob").size());
+        assertEquals(3, service.getHistory("alice").size());
+        assertEquals(4, service.entries());
+        assertTrue(service.bytes() <= TWO_HISTORIES);
+
+        assertThrows(IllegalArgumentException.class, () -> new HistoryService(10, Duration.ZERO, 5));
+    }
+
+    @Test
+    void partitionOverheadCounted() {
+        HistoryService service = new HistoryService(3, Duration.ofHours(1), TWO_HISTORIES);
+        // записей мало, но пустые истории пользователей тоже занимают память
+        service.add("alice", task(1));
+        service.add("bob", task(1));
+        service.add("carol", task(1));
+
+        assertEquals(2, service.size());
+        assertEquals(0, service.getHistory("alice").size());
+        assertEquals(2, service.entries());
+
+        service.removeUser("bob");
+        service.removeUser("carol");
+        assertEquals(0, service.bytes());
+    }
+}
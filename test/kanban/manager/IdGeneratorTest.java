@@ -0,0 +1,79 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void next() {
+        IdGenerator ids = new IdGenerator();
+        assertEquals(0, ids.next());
+        assertEquals(1, ids.next());
+        assertEquals(2, ids.peek());
+    }
+
+    @Test
+    void reserve() {
+        IdGenerator ids = new IdGenerator(10);
+        IdGenerator.Block block = ids.reserve(3);
+        assertEquals(13, ids.next());
+        assertEquals(3, block.remaining());
+        assertEquals(10, block.next());
+        assertEquals(11, block.next());
+        assertEquals(12, block.next());
+        assertFalse(block.hasNext());
+        assertThrows(IllegalStateException.class, block::next);
+        assertThrows(IllegalArgumentException.class, () -> ids.reserve(0));
+    }
+
+    @Test
+    void advanceTo() {
+        IdGenerator ids = new IdGenerator();
+        ids.advanceTo(100);
+        ids.advanceTo(50);
+        assertEquals(100, ids.next());
+        ids.set(5);
+        assertEquals(5, ids.next());
+    }
+
+    @Test
+    void parallelBlocks() throws InterruptedException {
+        IdGenerator ids = new IdGenerator();
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10; j++) {
+                    IdGenerator.Block block = ids.reserve(100);
+                    while (block.hasNext()) {
+                        allocated.add(block.next());
+                    }
+                    allocated.add(ids.next());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8 * 10 * 101, allocated.size());
+        assertEquals(8 * 10 * 101, ids.peek());
+    }
+
+    @Test
+    void managersHaveOwnCounters() {
+        TaskManager first = new InMemoryTaskManager();
+        TaskManager second = new InMemoryTaskManager();
+        assertEquals(0, first.createTask(new Task("name", "description")));
+        assertEquals(0, second.createTask(new Task("name", "description")));
+    }
+}
@@ -1,10 +1,18 @@
 package kanban.manager;
 
+import kanban.exception.ManagerTimeException;
 import kanban.model.Epic;
 import kanban.model.Subtask;
 import kanban.model.Task;
+import kanban.model.TaskState;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTaskManagerTest extends TaskManagerTest {
@@ -25,6 +33,45 @@ class InMemoryTaskManagerTest extends TaskManagerTest {
         assertEquals(100, task2.getId());
     }
 
+    @Test
+    void createAllReservesIds() {
+        InMemoryTaskManager mgr = (InMemoryTaskManager) manager;
+        Task task = new Task("name", "description");
+        Epic epic = new Epic("name2", "description2");
+        long[] ids = mgr.createAll(Arrays.asList(task, null, epic));
+
+        // блок на две задачи, null не получает идентификатор
+        assertArrayEquals(new long[]{0, -1, 1}, ids);
+        assertEquals(2, mgr.getCounter());
+        Task task2 = new Task("name3", "description3");
+        manager.createTask(task2);
+        assertEquals(2, task2.getId());
+    }
+
+    @Test
+    void pagingAfterIdWithoutSnapshot() {
+        InMemoryTaskManager mgr = (InMemoryTaskManager) manager;
+        Task task = new Task("name", "description");
+        mgr.createTask(task);
+        assertEquals(List.of(task), mgr.getTasksAfter(-1, 10));
+        // страница без снимка не собирает его и не включает отслеживание изменений
+        mgr.removeTask(task.getId());
+        assertEquals(0, mgr.changedCount());
+    }
+
+    @Test
+    void pagingAfterIdInTransaction() {
+        Task task = new Task("name", "description");
+        manager.createTask(task);
+        manager.inTransaction(() -> {
+            Task task2 = new Task("name2", "description2");
+            manager.createTask(task2);
+            // изменения транзакции видны и до ее фиксации
+            assertEquals(List.of(task2), manager.getTasksAfter(task.getId(), 10));
+        });
+        assertEquals(2, manager.getTasksAfter(-1, 10).size());
+    }
+
     @Test
     void createTaskWithId() {
         Task task = new Task("name", "description");
@@ -47,17 +94,16 @@ class InMemoryTaskManagerTest extends TaskManagerTest {
     }
 
     @Test
-    void getById() {
+    void findById() {
         Task task = new Task("name1", "description1");
         Epic epic = new Epic("name2", "description2");
         manager.createTask(task);
         manager.createEpic(epic);
         Subtask subtask = new Subtask("name3", "description3", epic.getId());
         manager.createSubtask(subtask);
-        InMemoryTaskManager inMemoryTaskManager = ((InMemoryTaskManager) manager);
-        assertEquals(task, inMemoryTaskManager.getById(task.getId()));
-        assertEquals(epic, inMemoryTaskManager.getById(epic.getId()));
-        assertEquals(subtask, inMemoryTaskManager.getById(subtask.getId()));
+        assertEquals(task, manager.findById(task.getId()));
+        assertEquals(epic, manager.findById(epic.getId()));
+        assertEquals(subtask, manager.findById(subtask.getId()));
     }
 
     @Test
@@ -65,4 +111,227 @@ class InMemoryTaskManagerTest extends TaskManagerTest {
         HistoryManager historyManager = ((InMemoryTaskManager) manager).getHistoryManager();
         assertNotNull(historyManager);
     }
-}
\ No newline at end of file
+
+    @Test
+    void transactionRollback() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        Epic epic1 = new Epic("epic1", "description1");
+        Epic epic2 = new Epic("epic2", "description2");
+        manager.createEpic(epic1);
+        manager.createEpic(epic2);
+        Subtask subtask1 = new Subtask("subtask1", "description", epic1.getId());
+        subtask1.setStartTime(time);
+        subtask1.setDuration(60);
+        Subtask subtask2 = new Subtask("subtask2", "description", epic1.getId());
+        subtask2.setStartTime(time.plusMinutes(120));
+        subtask2.setDuration(60);
+        Task task = new Task("task", "description");
+        task.setStartTime(time.plusMinutes(600));
+        task.setDuration(60);
+        manager.createSubtask(subtask1);
+        manager.createSubtask(subtask2);
+        manager.createTask(task);
+        manager.getTask(task.getId());
+
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        List<Subtask> subtasks = manager.getEpicSubtasks(epic1.getId());
+        TaskState state = epic1.getState();
+
+        assertThrows(ManagerTimeException.class, () -> manager.inTransaction(() -> {
+            // переносим подзадачи во второй эпик со сдвигом на 10 часов
+            for (Subtask subtask : subtasks) {
+                Subtask moved = new Subtask(subtask.getName(), subtask.getDescription(), epic2.getId());
+                moved.setId(subtask.getId());
+                moved.setState(TaskState.DONE);
+                moved.setStartTime(subtask.getStartTime().plusMinutes(600));
+                moved.setDuration(60);
+                manager.updateSubtask(moved);
+            }
+            manager.removeTask(task.getId());
+            manager.createTask(new Task("new task", "description"));
+            manager.getEpic(epic2.getId());
+            // пересекается с перенесенной подзадачей
+            Task conflict = new Task("conflict", "description");
+            conflict.setStartTime(time.plusMinutes(610));
+            conflict.setDuration(10);
+            manager.createTask(conflict);
+        }));
+
+        assertEquals(prioritized, manager.getPrioritizedTasks());
+        assertEquals(subtasks, manager.getEpicSubtasks(epic1.getId()));
+        assertEquals(0, manager.getEpicSubtasks(epic2.getId()).size());
+        assertEquals(List.of(task), manager.getAllTasks());
+        assertEquals(state, epic1.getState());
+        assertEquals(time, epic1.getStartTime());
+        assertNull(epic2.getStartTime());
+        assertEquals(List.of(task), manager.getHistory());
+        assertEquals(task, manager.findById(task.getId()));
+        assertFalse(manager.validateIntersections(task));
+    }
+
+    @Test
+    void transactionCommit() {
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        manager.inTransaction(() -> {
+            manager.createSubtask(new Subtask("subtask1", "description", epic.getId()));
+            manager.inTransaction(() -> manager.createSubtask(new Subtask("subtask2", "description", epic.getId())));
+            manager.removeEpic(epic.getId());
+            manager.createEpic(new Epic("epic2", "description"));
+        });
+
+        assertEquals(0, manager.getAllSubtasks().size());
+        assertEquals(1, manager.getAllEpics().size());
+        assertEquals("epic2", manager.getAllEpics().get(0).getName());
+    }
+
+    @Test
+    void transactionRollbackRemoveAll() {
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        manager.createSubtask(subtask);
+        manager.createTask(new Task("task", "description"));
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(() -> {
+            manager.removeAllTasks();
+            manager.removeAllEpics();
+            throw new IllegalStateException("cancel");
+        }));
+
+        assertEquals(1, manager.getAllTasks().size());
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()));
+    }
+
+    @Test
+    void snapshotInTransaction() {
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        manager.createSubtask(subtask);
+        TaskSnapshot before = manager.snapshot();
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(() -> {
+            manager.removeEpic(epic.getId());
+            // внутри транзакции виден снимок на ее начало
+            assertSame(before, manager.snapshot());
+            throw new IllegalStateException("rollback");
+        }));
+
+        TaskSnapshot after = manager.snapshot();
+        assertEquals(2, after.size());
+        assertEquals(before.getEpic(epic.getId()), after.getEpic(epic.getId()));
+        assertEquals(1, after.getEpicSubtasks(epic.getId()).size());
+    }
+
+    @Test
+    void changesTrackedAfterSnapshot() {
+        InMemoryTaskManager mgr = (InMemoryTaskManager) manager;
+        Task task = new Task("name", "description");
+        mgr.createTask(task);
+        mgr.removeTask(task.getId());
+        mgr.removeTask(1000);
+        // снимков не было - изменения не запоминаются
+        assertEquals(0, mgr.changedCount());
+
+        Task task2 = new Task("name2", "description2");
+        mgr.createTask(task2);
+        assertEquals(1, mgr.snapshot().size());
+        Task task3 = new Task("name3", "description3");
+        mgr.createTask(task3);
+        mgr.removeTask(task3.getId());
+        mgr.removeTask(1000);
+        // удаленные задачи, которых нет в снимке, не ждут снимка
+        assertEquals(0, mgr.changedCount());
+        mgr.removeTask(task2.getId());
+        assertEquals(1, mgr.changedCount());
+        assertEquals(0, mgr.snapshot().size());
+    }
+
+    @Test
+    void events() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        // события доставляются в потоке изменения
+        manager.enableEvents(Runnable::run, 16);
+        List<TaskEvent> received = new ArrayList<>();
+        manager.getEvents().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(TaskEvent item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        manager.createSubtask(subtask);
+        subtask.setState(TaskState.DONE);
+        manager.updateSubtask(subtask);
+        manager.getSubtask(subtask.getId());
+
+        assertEquals(List.of(TaskEvent.Type.CREATED, TaskEvent.Type.CREATED, TaskEvent.Type.UPDATED,
+                        TaskEvent.Type.UPDATED, TaskEvent.Type.UPDATED, TaskEvent.Type.VIEWED),
+                types(received));
+        assertEquals(TaskState.DONE, received.get(4).getTask().getState());
+        assertEquals(epic.getId(), received.get(4).getId());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i + 1, received.get(i).getVersion());
+        }
+
+        // события отмененной транзакции не отправляются
+        received.clear();
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(() -> {
+            manager.removeEpic(epic.getId());
+            throw new IllegalStateException("rollback");
+        }));
+        assertEquals(0, received.size());
+
+        manager.inTransaction(() -> manager.removeSubtask(subtask.getId()));
+        assertEquals(List.of(TaskEvent.Type.REMOVED, TaskEvent.Type.UPDATED), types(received));
+        manager.closeEvents();
+    }
+
+    private static List<TaskEvent.Type> types(List<TaskEvent> events) {
+        List<TaskEvent.Type> result = new ArrayList<>();
+        events.forEach(e -> result.add(e.getType()));
+        return result;
+    }
+
+    @Test
+    void userHistory() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = new Task("task", "description");
+        Epic epic = new Epic("epic", "description");
+        manager.createTask(task);
+        manager.createEpic(epic);
+
+        manager.view("alice", task.getId());
+        manager.view("alice", epic.getId());
+        manager.view("bob", epic.getId());
+
+        assertEquals(List.of(task, epic), manager.getHistory("alice"));
+        assertEquals(List.of(epic), manager.getHistory("bob"));
+        // общая история не меняется
+        assertEquals(0, manager.getHistory().size());
+
+        manager.removeTask(task.getId());
+        assertEquals(3, manager.getHistoryService().entries());
+        assertEquals(List.of(epic), manager.getHistory("alice"));
+        // удаленная задача убрана из истории и из бюджета записей
+        assertEquals(2, manager.getHistoryService().entries());
+    }
+}
@@ -0,0 +1,113 @@
+package kanban.manager;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalIndexTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    private static Task task(long id, int startMinute, int duration) {
+        Task task = new Task("task" + id, "description");
+        task.setId(id);
+        task.setStartTime(TIME.plusMinutes(startMinute));
+        task.setDuration(duration);
+        return task;
+    }
+
+    @Test
+    void overlaps() {
+        IntervalIndex index = new IntervalIndex();
+        index.add(task(1, 0, 60));
+        index.add(task(2, 120, 60));
+
+        assertTrue(index.overlaps(task(3, 30, 10)));
+        assertTrue(index.overlaps(task(3, 170, 30)));
+        assertFalse(index.overlaps(task(3, 61, 58)));
+        assertFalse(index.overlaps(task(3, -60, 60)));
+        assertFalse(index.overlaps(new Task("no time", "description")));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void removeAndReplace() {
+        IntervalIndex index = new IntervalIndex();
+        Task task = task(1, 0, 60);
+        index.add(task);
+        // объект изменили после добавления - удаляется все равно по id
+        task.setStartTime(TIME.plusDays(1));
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertFalse(index.overlaps(task(2, 0, 60)));
+
+        index.add(task(1, 0, 60));
+        index.add(task(1, 600, 60));
+        assertEquals(1, index.size());
+        assertFalse(index.overlaps(task(2, 0, 60)));
+        assertTrue(index.overlaps(task(2, 600, 60)));
+        // старая версия задачи не мешает ей самой
+        assertFalse(index.overlaps(task(1, 610, 60), 1));
+        assertTrue(index.overlaps(task(1, 610, 60)));
+    }
+
+    @Test
+    void sameAsLinearScan() {
+        IntervalIndex index = new IntervalIndex();
+        List<Task> tasks = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            Task probe = task(i, random.nextInt(100_000), 1 + random.nextInt(50));
+            assertEquals(linearScan(tasks, probe), index.overlaps(probe));
+            if (random.nextBoolean()) {
+                tasks.add(probe);
+                index.add(probe);
+            } else if (!tasks.isEmpty()) {
+                Task removed = tasks.remove(random.nextInt(tasks.size()));
+                assertTrue(index.remove(removed.getId()));
+            }
+        }
+        assertEquals(tasks.size(), index.size());
+    }
+
+    @Test
+    void rangeSameAsLinearScan() {
+        IntervalIndex index = new IntervalIndex();
+        List<Task> tasks = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 2_000; i++) {
+            Task task = task(i, random.nextInt(100_000), random.nextInt(500));
+            tasks.add(task);
+            index.add(task);
+        }
+        tasks.sort(Task::compareTo);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime from = TIME.plusMinutes(random.nextInt(100_000));
+            LocalDateTime to = from.plusMinutes(random.nextInt(5_000));
+            List<Long> expected = new ArrayList<>();
+            for (Task t : tasks) {
+                if (t.getStartTime().isBefore(to)
+                        && (t.getEndTime().isAfter(from) || !t.getStartTime().isBefore(from))) {
+                    expected.add(t.getId());
+                }
+            }
+            List<Long> actual = new ArrayList<>();
+            index.forEachOverlapping(from, to, actual::add);
+            assertEquals(expected, actual);
+        }
+    }
+
+    private static boolean linearScan(List<Task> tasks, Task task) {
+        for (Task t : tasks) {
+            if (!task.getStartTime().isAfter(t.getEndTime()) && task.getEndTime().isAfter(t.getStartTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
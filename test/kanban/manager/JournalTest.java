@@ -0,0 +1,152 @@
+package kanban.manager;
+
+import kanban.exception.ManagerSaveException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private Journal journal;
+
+    @BeforeEach
+    void init() throws IOException {
+        File file = File.createTempFile("test_journal", ".log");
+        file.deleteOnExit();
+        journal = new Journal(file);
+    }
+
+    @Test
+    void appendAndReplay() {
+        journal.append(Journal.Op.CREATE, "1,TASK,\"name\",NEW,\"description\",,,0");
+        journal.append(Journal.Op.REMOVE, "TASK,1");
+        journal.append(Journal.Op.VIEW, "2");
+        journal.getFile().deleteOnExit();
+
+        assertEquals(3, journal.getRecords());
+
+        List<String> records = new ArrayList<>();
+        journal.replay(0, (op, payload) -> records.add(op + "|" + payload));
+
+        assertEquals(List.of(
+                "CREATE|1,TASK,\"name\",NEW,\"description\",,,0",
+                "REMOVE|TASK,1",
+                "VIEW|2"), records);
+    }
+
+    @Test
+    void rotate() {
+        journal.append(Journal.Op.VIEW, "1");
+        File first = journal.getFile();
+        long closed = journal.rotate();
+        journal.append(Journal.Op.VIEW, "2");
+        journal.getFile().deleteOnExit();
+
+        assertEquals(1, journal.getRecords());
+
+        List<String> records = new ArrayList<>();
+        journal.replay(closed, (op, payload) -> records.add(payload));
+        assertEquals(List.of("2"), records);
+
+        journal.deleteUpTo(closed);
+        assertFalse(first.exists());
+        assertTrue(journal.getFile().exists());
+    }
+
+    @Test
+    void groupCommit() {
+        journal.enableGroupCommit(60_000, 1000);
+        journal.append(Journal.Op.VIEW, "1");
+        journal.append(Journal.Op.VIEW, "2");
+        journal.getFile().deleteOnExit();
+
+        List<String> records = new ArrayList<>();
+        journal.replay(0, (op, payload) -> records.add(payload));
+        assertEquals(0, records.size());
+
+        journal.close();
+        journal.replay(0, (op, payload) -> records.add(payload));
+        assertEquals(List.of("1", "2"), records);
+    }
+
+    @Test
+    void transaction() {
+        journal.append(Journal.Op.VIEW, "1");
+        journal.appendTransaction(List.of(
+                Journal.record(Journal.Op.REMOVE, "TASK,1"),
+                Journal.record(Journal.Op.VIEW, "2")));
+        journal.getFile().deleteOnExit();
+
+        assertEquals(5, journal.getRecords());
+
+        List<String> records = new ArrayList<>();
+        assertTrue(journal.replay(0, (op, payload) -> records.add(op + "|" + payload)));
+        assertEquals(List.of("VIEW|1", "REMOVE|TASK,1", "VIEW|2"), records);
+    }
+
+    @Test
+    void failedFlushKeepsRecords() {
+        File segment = journal.getFile();
+        // сегмент нельзя открыть на запись - на его месте каталог
+        assertTrue(segment.mkdir());
+        journal.enableGroupCommit(60_000, 0);
+        journal.append(Journal.Op.VIEW, "1");
+
+        assertThrows(ManagerSaveException.class, journal::flush);
+        assertTrue(segment.delete());
+        journal.flush();
+        segment.deleteOnExit();
+
+        List<String> records = new ArrayList<>();
+        journal.replay(0, (op, payload) -> records.add(payload));
+        assertEquals(List.of("1"), records);
+        journal.close();
+    }
+
+    @Test
+    void backgroundFailureReported() {
+        File segment = journal.getFile();
+        assertTrue(segment.mkdir());
+        // фоновая запись выполняется сразу в вызывающем потоке
+        journal.enableGroupCommit(1, new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        // ошибка фоновой записи не теряется, запись остается в очереди
+        assertThrows(ManagerSaveException.class, () -> journal.append(Journal.Op.VIEW, "1"));
+        assertTrue(segment.delete());
+        journal.append(Journal.Op.VIEW, "2");
+        journal.close();
+        segment.deleteOnExit();
+
+        List<String> records = new ArrayList<>();
+        journal.replay(0, (op, payload) -> records.add(payload));
+        assertEquals(List.of("1", "2"), records);
+    }
+
+    @Test
+    void failedWriteKeepsRecord() {
+        File segment = journal.getFile();
+        assertTrue(segment.mkdir());
+
+        // без group commit запись не удалась, но осталась в очереди
+        assertThrows(ManagerSaveException.class, () -> journal.append(Journal.Op.VIEW, "1"));
+        assertTrue(segment.delete());
+        journal.append(Journal.Op.VIEW, "2");
+        segment.deleteOnExit();
+
+        List<String> records = new ArrayList<>();
+        journal.replay(0, (op, payload) -> records.add(payload));
+        assertEquals(List.of("1", "2"), records);
+    }
+}
@@ -0,0 +1,70 @@
+package kanban.manager;
+
+import java.util.HashMap;
+import java.util.Random;
+
+// сравнение LongHashMap и HashMap<Long, ...>: занимаемая память и время поиска.
+// Запуск: java kanban.manager.LongHashMapBenchmark [количество элементов]
+public class LongHashMapBenchmark {
+    private static final int LOOKUPS = 10_000_000;
+
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        Object value = new Object();
+        long[] keys = new long[LOOKUPS];
+        Random random = new Random(1);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(count);
+        }
+
+        System.out.printf("entries: %,d, lookups: %,d%n", count, LOOKUPS);
+
+        long before = usedMemory();
+        HashMap<Long, Object> hashMap = new HashMap<>();
+        for (long i = 0; i < count; i++) {
+            hashMap.put(i, value);
+        }
+        long hashMapBytes = usedMemory() - before;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (long key : keys) {
+                if (hashMap.get(key) != null) {
+                    found++;
+                }
+            }
+            report("HashMap<Long, V>", hashMapBytes, count, System.nanoTime() - start, found);
+        }
+        hashMap = null;
+
+        before = usedMemory();
+        LongHashMap<Object> longHashMap = new LongHashMap<>();
+        for (long i = 0; i < count; i++) {
+            longHashMap.put(i, value);
+        }
+        long longHashMapBytes = usedMemory() - before;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (long key : keys) {
+                if (longHashMap.get(key) != null) {
+                    found++;
+                }
+            }
+            report("LongHashMap<V>", longHashMapBytes, count, System.nanoTime() - start, found);
+        }
+    }
+
+    private static void report(String name, long bytes, int count, long nanos, int found) {
+        System.out.printf("%-18s %,12d bytes (%5.1f bytes/entry), %6.2f ns/lookup, found %,d%n",
+                name, bytes, (double) bytes / count, (double) nanos / LOOKUPS, found);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
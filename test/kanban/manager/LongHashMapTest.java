@@ -0,0 +1,90 @@
+package kanban.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashMapTest {
+
+    @Test
+    void putGetRemove() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.put(1, "uno"));
+        map.put(-5, "minus five");
+        map.put(Long.MAX_VALUE, "max");
+
+        assertEquals(3, map.size());
+        assertEquals("uno", map.get(1));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertTrue(map.containsKey(-5));
+        assertNull(map.get(2));
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertFalse(map.remove(-5, "other"));
+        assertTrue(map.remove(-5, "minus five"));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(Long.MAX_VALUE));
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    void sequentialOrder() {
+        LongHashMap<Long> map = new LongHashMap<>();
+        for (long i = 0; i < 10; i++) {
+            map.put(i, i);
+        }
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), new ArrayList<>(map.values()));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, map.keys());
+    }
+
+    @Test
+    void sameAsHashMap() {
+        LongHashMap<Long> map = new LongHashMap<>();
+        HashMap<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        // небольшой диапазон ключей - много коллизий и удалений из середины цепочек
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) * 65_536L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Long key : expected.keySet()) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        for (long key : map.keys()) {
+            assertTrue(expected.containsKey(key));
+        }
+    }
+
+    @Test
+    void shrink() {
+        LongHashMap<Long> map = new LongHashMap<>();
+        for (long i = 0; i < 10_000; i++) {
+            map.put(i, i);
+        }
+        for (long i = 0; i < 9_990; i++) {
+            assertEquals(Long.valueOf(i), map.remove(i));
+        }
+        assertEquals(10, map.size());
+        for (long i = 9_990; i < 10_000; i++) {
+            assertEquals(Long.valueOf(i), map.get(i));
+        }
+        map.clear();
+        map.put(5, 5L);
+        assertEquals(List.of(5L), new ArrayList<>(map.values()));
+    }
+}
@@ -0,0 +1,71 @@
+package kanban.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentLongMapTest {
+
+    @Test
+    void plusMinus() {
+        PersistentLongMap<String> empty = PersistentLongMap.empty();
+        PersistentLongMap<String> one = empty.plus(1, "one");
+        PersistentLongMap<String> two = one.plus(2, "two").plus(-5, "minus five");
+        PersistentLongMap<String> replaced = two.plus(1, "uno");
+
+        // старые версии не меняются
+        assertTrue(empty.isEmpty());
+        assertEquals(1, one.size());
+        assertEquals("one", two.get(1));
+        assertEquals("uno", replaced.get(1));
+        assertEquals(List.of("minus five", "uno", "two"), new ArrayList<>(replaced.values()));
+
+        PersistentLongMap<String> removed = replaced.minus(2);
+        assertNull(removed.get(2));
+        assertEquals("two", replaced.get(2));
+        assertSame(removed, removed.minus(2));
+        assertSame(removed, removed.plus(1, removed.get(1)));
+        assertTrue(removed.minus(1).minus(-5).isEmpty());
+    }
+
+    @Test
+    void sameAsTreeMap() {
+        Random random = new Random(3);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        PersistentLongMap<Long> map = PersistentLongMap.empty();
+        List<PersistentLongMap<Long>> versions = new ArrayList<>();
+        List<List<Long>> contents = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextInt(3) > 0) {
+                expected.put(key, (long) i);
+                map = map.plus(key, (long) i);
+            } else {
+                expected.remove(key);
+                map = map.minus(key);
+            }
+            if (i % 1_000 == 0) {
+                versions.add(map);
+                contents.add(new ArrayList<>(expected.values()));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(contents.get(i), new ArrayList<>(versions.get(i).values()));
+        }
+        for (long key = -1; key < 2_001; key += 97) {
+            List<Long> tail = new ArrayList<>();
+            map.iteratorAfter(key).forEachRemaining(tail::add);
+            assertEquals(new ArrayList<>(expected.tailMap(key, false).values()), tail);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package kanban.manager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordChecksumTest {
+
+    @Test
+    void signAndVerify() {
+        String record = "1,TASK,\"name\",NEW,\"description\",,,0";
+        String line = RecordChecksum.sign(record);
+
+        assertTrue(RecordChecksum.isSigned(line));
+        assertEquals(record, RecordChecksum.verify(line));
+    }
+
+    @Test
+    void damaged() {
+        String line = RecordChecksum.sign("1,TASK,\"name\",NEW,\"description\",,,0");
+
+        assertNull(RecordChecksum.verify(line.replace("name", "nama")));
+        assertNull(RecordChecksum.verify(line.substring(0, line.length() - 3)));
+    }
+
+    @Test
+    void unsigned() {
+        String line = "1,TASK,\"name\",NEW,\"description\",,,0";
+
+        assertFalse(RecordChecksum.isSigned(line));
+        assertNull(RecordChecksum.verify(line));
+    }
+}
@@ -1,13 +1,17 @@
 package kanban.manager;
 
+import kanban.exception.ManagerTimeException;
 import kanban.model.Epic;
 import kanban.model.Subtask;
 import kanban.model.Task;
 import kanban.model.TaskState;
+import kanban.model.TaskType;
+import kanban.model.TaskView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -528,4 +532,343 @@ abstract class TaskManagerTest {
         valid = manager.validateIntersections(newTask);
         assertFalse(valid);
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateScheduledTaskTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        Task task = new Task("name1", "description1");
+        task.setStartTime(time);
+        task.setDuration(60);
+        Task task2 = new Task("name2", "description2");
+        task2.setStartTime(time.plusMinutes(120));
+        task2.setDuration(60);
+        manager.createTask(task);
+        manager.createTask(task2);
+
+        // сдвиг внутри своего же интервала не пересекается со старой версией задачи
+        task.setStartTime(time.plusMinutes(30));
+        manager.updateTask(task);
+        assertEquals(List.of(task, task2), manager.getPrioritizedTasks());
+
+        Task moved = new Task("name1", "description1");
+        moved.setId(task.getId());
+        moved.setStartTime(time.plusMinutes(150));
+        moved.setDuration(60);
+        assertThrows(ManagerTimeException.class, () -> manager.updateTask(moved));
+
+        // после удаления интервал свободен
+        manager.removeTask(task2.getId());
+        manager.updateTask(moved);
+        assertEquals(List.of(moved), manager.getPrioritizedTasks());
+        assertFalse(manager.validateIntersections(task2));
+    }
+
+    @Test
+    void validateIntersectionsAfterRemoveTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        Epic epic = new Epic("name1", "description1");
+        manager.createEpic(epic);
+        for (int i = 0; i < 100; i++) {
+            Subtask subtask = new Subtask("subtask" + i, "description", epic.getId());
+            subtask.setStartTime(time.plusMinutes(i * 10L));
+            subtask.setDuration(5);
+            manager.createSubtask(subtask);
+        }
+        Task task = new Task("name2", "description2");
+        task.setStartTime(time.plusMinutes(500));
+        task.setDuration(30);
+        assertFalse(manager.validateIntersections(task));
+
+        manager.removeEpic(epic.getId());
+        assertTrue(manager.validateIntersections(task));
+        manager.createTask(task);
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void findByIdTest() {
+        Task task = new Task("name1", "description1");
+        Epic epic = new Epic("name2", "description2");
+        manager.createTask(task);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("name3", "description3", epic.getId());
+        manager.createSubtask(subtask);
+
+        assertEquals(task, manager.findById(task.getId()));
+        assertEquals(epic, manager.findById(epic.getId(), Epic.class));
+        assertEquals(subtask, manager.findById(subtask.getId(), Subtask.class));
+        assertNull(manager.findById(task.getId(), Epic.class));
+        assertEquals(TaskType.SUBTASK, TaskType.of(manager.findById(subtask.getId())));
+        // findById не попадает в историю просмотров
+        assertEquals(0, manager.getHistory().size());
+
+        Task updated = new Task("name4", "description4");
+        updated.setId(task.getId());
+        manager.updateTask(updated);
+        assertEquals(updated, manager.findById(task.getId()));
+
+        manager.removeTask(task.getId());
+        manager.removeEpic(epic.getId());
+        assertNull(manager.findById(task.getId()));
+        assertNull(manager.findById(epic.getId()));
+        assertNull(manager.findById(subtask.getId()));
+    }
+
+    @Test
+    void createAllTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        Task task = new Task("task1", "description1");
+        task.setStartTime(time);
+        task.setDuration(60);
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        subtask.setStartTime(time.plusMinutes(120));
+        subtask.setDuration(60);
+        // пересекается с task из этой же пачки
+        Task conflict = new Task("task2", "description2");
+        conflict.setStartTime(time.plusMinutes(30));
+        conflict.setDuration(60);
+        Epic epic2 = new Epic("epic2", "description2");
+
+        long[] ids = manager.createAll(List.of(task, subtask, conflict, epic2));
+
+        assertEquals(4, ids.length);
+        assertEquals(task.getId(), ids[0]);
+        assertEquals(subtask.getId(), ids[1]);
+        assertEquals(-1, ids[2]);
+        assertEquals(epic2.getId(), ids[3]);
+        assertEquals(List.of(task), manager.getAllTasks());
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()));
+        assertEquals(List.of(task, subtask), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void updateAllTest() {
+        Task task = new Task("task", "description");
+        Epic epic = new Epic("epic", "description");
+        manager.createAll(List.of(task, epic));
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        manager.createSubtask(subtask);
+
+        task.setState(TaskState.DONE);
+        subtask.setState(TaskState.IN_PROGRESS);
+        Subtask missing = new Subtask("missing", "description", epic.getId());
+        missing.setId(1000);
+        long[] ids = manager.updateAll(List.of(task, subtask, missing));
+
+        assertArrayEquals(new long[]{task.getId(), subtask.getId(), -1}, ids);
+        assertEquals(TaskState.DONE, manager.findById(task.getId()).getState());
+        assertEquals(TaskState.IN_PROGRESS, manager.findById(epic.getId()).getState());
+    }
+
+    @Test
+    void removeAllByIdsTest() {
+        Task task = new Task("task", "description");
+        Epic epic = new Epic("epic", "description");
+        manager.createAll(List.of(task, epic));
+        Subtask subtask = new Subtask("subtask", "description", epic.getId());
+        manager.createSubtask(subtask);
+
+        // подзадача удаляется вместе с эпиком, поэтому для нее false
+        boolean[] removed = manager.removeAll(new long[]{epic.getId(), subtask.getId(), task.getId(), 1000});
+
+        assertArrayEquals(new boolean[]{true, false, true, false}, removed);
+        assertEquals(0, manager.getAllTasks().size());
+        assertEquals(0, manager.getAllEpics().size());
+        assertEquals(0, manager.getAllSubtasks().size());
+    }
+
+    @Test
+    void pagingTest() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Task task = new Task("task" + i, "description");
+            manager.createTask(task);
+            tasks.add(task);
+        }
+        Epic epic = new Epic("epic", "description");
+        manager.createEpic(epic);
+        for (int i = 0; i < 5; i++) {
+            manager.createSubtask(new Subtask("subtask" + i, "description", epic.getId()));
+        }
+
+        assertEquals(manager.getAllTasks().subList(10, 20), manager.getTasks(10, 10));
+        assertEquals(manager.getAllTasks().subList(20, 25), manager.getTasks(20, 10));
+        assertEquals(0, manager.getTasks(30, 10).size());
+        assertEquals(List.of(epic), manager.getEpics(0, 10));
+        assertEquals(manager.getAllSubtasks().subList(1, 3), manager.getSubtasks(1, 2));
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasks(-1, 10));
+
+        // по ключу: каждая следующая страница начинается после id последней задачи
+        List<Task> all = new ArrayList<>();
+        long after = -1;
+        List<Task> page;
+        while (!(page = manager.getTasksAfter(after, 10)).isEmpty()) {
+            all.addAll(page);
+            after = page.get(page.size() - 1).getId();
+        }
+        assertEquals(tasks, all);
+        assertEquals(List.of(epic), manager.getEpicsAfter(-1, 10));
+        assertEquals(0, manager.getEpicsAfter(epic.getId(), 10).size());
+        assertEquals(3, manager.getSubtasksAfter(epic.getId() + 2, 10).size());
+    }
+
+    @Test
+    void prioritizedPagingTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 12, 0);
+        for (int i = 0; i < 20; i++) {
+            Task task = new Task("task" + i, "description");
+            task.setStartTime(time.minusMinutes(i * 10L));
+            task.setDuration(5);
+            manager.createTask(task);
+        }
+        manager.createTask(new Task("no time", "description"));
+        List<Task> prioritized = manager.getPrioritizedTasks();
+
+        assertEquals(prioritized.subList(5, 10), manager.getPrioritizedTasks(5, 5));
+
+        List<Task> all = new ArrayList<>();
+        Task after = null;
+        List<Task> page;
+        while (!(page = manager.getPrioritizedTasksAfter(after, 6)).isEmpty()) {
+            all.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertEquals(prioritized, all);
+    }
+
+    @Test
+    void historyPagingTest() {
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task("task" + i, "description");
+            manager.createTask(task);
+            manager.getTask(task.getId());
+        }
+        List<Task> history = manager.getHistory();
+
+        assertEquals(history.subList(1, 4), manager.getHistory(1, 3));
+        assertEquals(history.subList(3, 5), manager.getHistory(3, 10));
+        assertEquals(0, manager.getHistory(0, 0).size());
+    }
+
+    @Test
+    void getByStateTest() {
+        Task task1 = new Task("task1", "description");
+        Task task2 = new Task("task2", "description");
+        task2.setState(TaskState.DONE);
+        Epic epic1 = new Epic("epic1", "description");
+        Epic epic2 = new Epic("epic2", "description");
+        manager.createAll(List.of(task1, task2, epic1, epic2));
+        Subtask subtask1 = new Subtask("subtask1", "description", epic1.getId());
+        Subtask subtask2 = new Subtask("subtask2", "description", epic1.getId());
+        manager.createAll(List.of(subtask1, subtask2));
+
+        assertEquals(List.of(task1), manager.getTasksByState(TaskState.NEW));
+        assertEquals(List.of(task2), manager.getTasksByState(TaskState.DONE));
+        assertEquals(2, manager.getSubtasksByState(TaskState.NEW).size());
+        assertEquals(2, manager.getEpicsByState(TaskState.NEW).size());
+
+        subtask1.setState(TaskState.DONE);
+        manager.updateSubtask(subtask1);
+        task1.setState(TaskState.IN_PROGRESS);
+        manager.updateTask(task1);
+
+        assertEquals(List.of(task1), manager.getTasksByState(TaskState.IN_PROGRESS));
+        assertEquals(0, manager.getTasksByState(TaskState.NEW).size());
+        assertEquals(List.of(subtask1), manager.getSubtasksByState(TaskState.DONE));
+        assertEquals(List.of(epic1), manager.getEpicsByState(TaskState.IN_PROGRESS));
+        assertEquals(List.of(epic2), manager.getEpicsByState(TaskState.NEW));
+
+        // подзадача переезжает во второй эпик
+        Subtask moved = new Subtask("subtask2", "description", epic2.getId());
+        moved.setId(subtask2.getId());
+        moved.setState(TaskState.DONE);
+        manager.updateSubtask(moved);
+        assertEquals(2, manager.getEpicsByState(TaskState.DONE).size());
+        assertEquals(0, manager.getEpicsByState(TaskState.IN_PROGRESS).size());
+
+        manager.removeSubtask(subtask1.getId());
+        assertEquals(List.of(epic1), manager.getEpicsByState(TaskState.NEW));
+        manager.removeAllSubtasks();
+        assertEquals(2, manager.getEpicsByState(TaskState.NEW).size());
+        assertEquals(0, manager.getSubtasksByState(TaskState.DONE).size());
+        manager.removeTask(task2.getId());
+        assertEquals(0, manager.getTasksByState(TaskState.DONE).size());
+        manager.removeAllEpics();
+        assertEquals(0, manager.getEpicsByState(TaskState.NEW).size());
+    }
+
+    @Test
+    void prioritizedRangeTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 1, 2, 0, 0);
+        // длинная задача начинается до окна и заканчивается внутри него
+        Task longTask = new Task("long", "description");
+        longTask.setStartTime(time.minusDays(1));
+        longTask.setDuration(24 * 60 + 30);
+        manager.createTask(longTask);
+        List<Task> daily = new ArrayList<>();
+        for (int i = 1; i < 10; i++) {
+            Task task = new Task("task" + i, "description");
+            task.setStartTime(time.plusDays(i));
+            task.setDuration(60);
+            manager.createTask(task);
+            daily.add(task);
+        }
+        manager.createTask(new Task("no time", "description"));
+
+        List<Task> expected = new ArrayList<>(List.of(longTask));
+        expected.addAll(daily.subList(0, 6));
+        assertEquals(expected, manager.getPrioritizedTasks(time, time.plusDays(7)));
+        assertEquals(daily.subList(0, 6), manager.getPrioritizedTasks(time.plusHours(1), time.plusDays(7)));
+        // конец окна не включается
+        assertEquals(daily.subList(0, 1), manager.getPrioritizedTasks(time.plusDays(1), time.plusDays(2)));
+        assertEquals(0, manager.getPrioritizedTasks(time.plusDays(1).plusHours(2), time.plusDays(2)).size());
+        assertEquals(daily.subList(5, 9), manager.getPrioritizedTasks(time.plusDays(6), null));
+        assertEquals(manager.getPrioritizedTasks().subList(0, 10), manager.getPrioritizedTasks(null, null));
+
+        manager.removeTask(longTask.getId());
+        assertEquals(daily.subList(0, 6), manager.getPrioritizedTasks(time, time.plusDays(7)));
+    }
+
+    @Test
+    void snapshotTest() {
+        Task task = new Task("task", "description");
+        Epic epic1 = new Epic("epic1", "description");
+        Epic epic2 = new Epic("epic2", "description");
+        manager.createAll(List.of(task, epic1, epic2));
+        Subtask subtask = new Subtask("subtask", "description", epic1.getId());
+        manager.createSubtask(subtask);
+
+        TaskSnapshot before = manager.snapshot();
+        assertEquals(4, before.size());
+        assertEquals(TaskView.of(task), before.getTask(task.getId()));
+        assertEquals(TaskType.SUBTASK, before.findById(subtask.getId()).getType());
+        assertEquals(List.of(TaskView.of(subtask)), new ArrayList<>(before.getEpicSubtasks(epic1.getId())));
+
+        // подзадача переезжает во второй эпик и завершается
+        Subtask moved = new Subtask("subtask", "description", epic2.getId());
+        moved.setId(subtask.getId());
+        moved.setState(TaskState.DONE);
+        manager.updateSubtask(moved);
+        manager.removeTask(task.getId());
+        TaskSnapshot after = manager.snapshot();
+
+        // старый снимок не изменился
+        assertEquals(4, before.size());
+        assertNotNull(before.getTask(task.getId()));
+        assertEquals(TaskState.NEW, before.getEpic(epic2.getId()).getState());
+        assertEquals(1, before.getEpicSubtasks(epic1.getId()).size());
+
+        assertNull(after.getTask(task.getId()));
+        assertEquals(0, after.getEpicSubtasks(epic1.getId()).size());
+        assertEquals(List.of(TaskView.of(moved)), new ArrayList<>(after.getEpicSubtasks(epic2.getId())));
+        assertEquals(TaskState.NEW, after.getEpic(epic1.getId()).getState());
+        assertEquals(TaskState.DONE, after.getEpic(epic2.getId()).getState());
+        assertEquals(moved, after.getSubtask(moved.getId()).toTask());
+
+        manager.removeAllEpics();
+        assertEquals(0, manager.snapshot().size());
+        assertEquals(3, after.size());
+    }
+}
@@ -189,4 +189,99 @@ class EpicTest {
         assertEquals(time.plusMinutes(1000), epic.getEndTime());
     }
 
-}
\ No newline at end of file
+    @Test
+    void endTimeIsLatestSubtaskEnd() {
+        Epic epic = new Epic("name", "description");
+        LocalDateTime time = LocalDateTime.now();
+
+        Subtask longer = new Subtask("subtask1", "info1", epic.getId());
+        Subtask later = new Subtask("subtask2", "info2", epic.getId());
+        Subtask noTime = new Subtask("subtask3", "info3", epic.getId());
+        longer.setId(1);
+        longer.setDuration(300);
+        longer.setStartTime(time);
+        later.setId(2);
+        later.setDuration(60);
+        later.setStartTime(time.plusMinutes(60));
+        noTime.setId(3);
+        noTime.setDuration(30);
+
+        epic.getSubtasks().add(longer);
+        epic.getSubtasks().add(later);
+        epic.getSubtasks().add(noTime);
+
+        // эпик заканчивается с самой поздней подзадачей, даже если она началась раньше,
+        // подзадачи без времени не учитываются
+        assertEquals(time.plusMinutes(300), epic.getEndTime());
+
+        epic.getSubtasks().remove(longer);
+        assertEquals(time.plusMinutes(60), epic.getStartTime());
+        assertEquals(time.plusMinutes(120), epic.getEndTime());
+    }
+
+    @Test
+    void rollupsAfterRemove() {
+        Epic epic = new Epic("name", "description");
+        LocalDateTime time = LocalDateTime.now();
+
+        Subtask subtask1 = new Subtask("subtask1", "info1", epic.getId());
+        Subtask subtask2 = new Subtask("subtask2", "info2", epic.getId());
+        Subtask subtask3 = new Subtask("subtask3", "info3", epic.getId());
+        subtask1.setId(1);
+        subtask1.setDuration(100);
+        subtask1.setStartTime(time);
+        subtask2.setId(2);
+        subtask2.setDuration(200);
+        subtask2.setStartTime(time.plusMinutes(600));
+        subtask2.setState(TaskState.DONE);
+        subtask3.setId(3);
+        subtask3.setDuration(300);
+
+        epic.getSubtasks().add(subtask1);
+        epic.getSubtasks().add(subtask2);
+        epic.getSubtasks().add(subtask3);
+        assertEquals(TaskState.IN_PROGRESS, epic.getState());
+        assertEquals(600, epic.getDuration());
+        assertEquals(time, epic.getStartTime());
+        assertEquals(time.plusMinutes(800), epic.getEndTime());
+
+        epic.getSubtasks().remove(subtask2);
+        assertEquals(TaskState.NEW, epic.getState());
+        assertEquals(400, epic.getDuration());
+        assertEquals(time.plusMinutes(100), epic.getEndTime());
+
+        epic.getSubtasks().remove(subtask1);
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+        assertEquals(300, epic.getDuration());
+
+        epic.getSubtasks().clear();
+        assertEquals(0, epic.getDuration());
+        assertEquals(TaskState.NEW, epic.getState());
+    }
+
+    @Test
+    void refresh() {
+        Epic epic = new Epic("name", "description");
+        LocalDateTime time = LocalDateTime.now();
+        Subtask subtask = new Subtask("subtask", "info", epic.getId());
+        subtask.setId(1);
+        subtask.setDuration(100);
+        subtask.setStartTime(time);
+        epic.getSubtasks().add(subtask);
+
+        // подзадачу изменили на месте - сводные значения пересчитываются по refresh
+        subtask.setState(TaskState.DONE);
+        subtask.setStartTime(time.plusMinutes(60));
+        epic.refresh(subtask);
+
+        assertEquals(TaskState.DONE, epic.getState());
+        assertEquals(time.plusMinutes(60), epic.getStartTime());
+        assertEquals(time.plusMinutes(160), epic.getEndTime());
+        assertEquals(1, epic.getSubtasks().size());
+
+        epic.getSubtasks().remove(subtask);
+        assertEquals(0, epic.getSubtasks().size());
+        assertNull(epic.getStartTime());
+    }
+}